@@ -0,0 +1,186 @@
+package com.warba.assessment.cache;
+
+import com.warba.assessment.repository.projection.AttachmentDownloadView;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the stored bytes of recently downloaded attachments in direct buffers, outside the heap,
+ * together with the attachment columns a download needs, so a hit costs neither a query nor a
+ * disk read. Entries are evicted least recently used first once {@code maxBytes} is exceeded;
+ * files larger than {@code maxEntryBytes} are never cached. Attachment content never changes,
+ * so entries only need to be dropped when their attachment is deleted, which
+ * {@link #evictOnCommit} does once the deletion has committed. A download that read the row
+ * before that may still put the entry back, so a miss checks the row again after its put.
+ */
+public class AttachmentCache implements MeterBinder {
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private long usedBytes;
+
+    public AttachmentCache(long maxBytes, long maxEntryBytes) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    public synchronized Entry get(Long id) {
+        Entry entry = entries.get(id);
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Looks the entry up without counting a hit or miss.
+     */
+    public synchronized Entry peek(Long id) {
+        return entries.get(id);
+    }
+
+    public boolean accepts(long size) {
+        return size <= maxEntryBytes && size <= Integer.MAX_VALUE;
+    }
+
+    /**
+     * Reads the resource into a direct buffer and caches it. The read happens outside the lock.
+     */
+    public Entry put(Long id, AttachmentDownloadView attachment, Resource resource) throws IOException {
+        long size = resource.contentLength();
+        if (!accepts(size)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect((int) size);
+        try (ReadableByteChannel channel = resource.readableChannel()) {
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // keep reading until the buffer is full or the file ends
+            }
+        }
+        buffer.flip();
+        Entry entry = new Entry(new CachedDownloadView(attachment), buffer);
+
+        synchronized (this) {
+            Entry previous = entries.put(id, entry);
+            if (previous != null) {
+                usedBytes -= previous.size();
+            }
+            usedBytes += entry.size();
+            evict();
+        }
+        return entry;
+    }
+
+    public synchronized void evict(Long id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            usedBytes -= entry.size();
+        }
+    }
+
+    /**
+     * Evicts the entries once the current transaction commits, or right away outside of one.
+     * Evicting earlier would let a download that still sees the row cache it again.
+     */
+    public void evictOnCommit(Collection<Long> ids) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ids.forEach(this::evict);
+            return;
+        }
+        List<Long> evicted = List.copyOf(ids);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evicted.forEach(AttachmentCache.this::evict);
+            }
+        });
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().size();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("attachment.cache.requests", hits, LongAdder::sum).tag("result", "hit")
+                .description("Attachment downloads served from the cache").register(registry);
+        FunctionCounter.builder("attachment.cache.requests", misses, LongAdder::sum).tag("result", "miss")
+                .description("Attachment downloads not found in the cache").register(registry);
+        FunctionCounter.builder("attachment.cache.evictions", evictions, LongAdder::sum)
+                .description("Attachments evicted from the cache").register(registry);
+        Gauge.builder("attachment.cache.size", this, AttachmentCache::usedBytes).baseUnit("bytes")
+                .description("Direct memory held by cached attachments").register(registry);
+        Gauge.builder("attachment.cache.entries", this, AttachmentCache::size)
+                .description("Number of cached attachments").register(registry);
+    }
+
+    public record Entry(AttachmentDownloadView attachment, ByteBuffer content) {
+
+        public Resource resource() {
+            return new ByteBufferResource(content, attachment.getFileName());
+        }
+
+        long size() {
+            return content.capacity();
+        }
+    }
+
+    /**
+     * Detached copy of the projection, which would otherwise keep its backing tuple alive.
+     */
+    @Value
+    private static class CachedDownloadView implements AttachmentDownloadView {
+        Long id;
+        String fileName;
+        String originalFileName;
+        String fileType;
+        Long fileSize;
+        String checksum;
+        String contentEncoding;
+
+        CachedDownloadView(AttachmentDownloadView view) {
+            this.id = view.getId();
+            this.fileName = view.getFileName();
+            this.originalFileName = view.getOriginalFileName();
+            this.fileType = view.getFileType();
+            this.fileSize = view.getFileSize();
+            this.checksum = view.getChecksum();
+            this.contentEncoding = view.getContentEncoding();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.warba.assessment.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+
+    public static final String USERS = "users";
+
+    /**
+     * A {@code file.cache.max-size} of 0 disables the download cache.
+     */
+    @Bean
+    public AttachmentCache attachmentCache(@Value("${file.cache.max-size:64MB}") DataSize maxSize,
+                                           @Value("${file.cache.max-entry-size:1MB}") DataSize maxEntrySize) {
+        return new AttachmentCache(maxSize.toBytes(), maxEntrySize.toBytes());
+    }
+
+    /**
+     * Users by id, bounded in size and age. Evictions made inside a transaction are applied after
+     * it commits, so a concurrent read cannot put the old row back between the eviction and the
+     * commit. Hit and miss counts are published as the {@code cache.*} metrics.
+     */
+    @Bean
+    public CacheManager cacheManager(@Value("${user.cache.max-size:10000}") long maxSize,
+                                     @Value("${user.cache.ttl:PT10M}") Duration ttl) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager(USERS);
+        cacheManager.setCaffeine(Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats());
+        cacheManager.setAllowNullValues(false);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
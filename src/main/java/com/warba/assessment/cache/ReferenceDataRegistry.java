@@ -0,0 +1,95 @@
+package com.warba.assessment.cache;
+
+import com.warba.assessment.entity.AttachmentType;
+import com.warba.assessment.entity.Status;
+import com.warba.assessment.repository.AttachmentTypeRepository;
+import com.warba.assessment.repository.StatusRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the rows of {@code STATUSES} and {@code ATTACHMENT_TYPES}, which are seeded by migrations
+ * and hardly ever change, so validating a status or attachment type costs no query. Statuses are
+ * indexed by name in an {@link EnumMap} and by id in an array; attachment types by name in an
+ * immutable {@link Map#copyOf} map. Lookups read one volatile snapshot and allocate nothing.
+ * <p>
+ * The tables are read once at startup; call {@link #refresh()} after changing them. The returned
+ * entities are shared and must not be modified. To point an entity at one of them, use the
+ * {@code ...Reference} lookups, which return a proxy that Hibernate writes as a foreign key
+ * without loading it.
+ */
+@Slf4j
+@Component
+public class ReferenceDataRegistry {
+
+    private final StatusRepository statusRepository;
+    private final AttachmentTypeRepository attachmentTypeRepository;
+    private final EntityManager entityManager;
+    private volatile Snapshot snapshot;
+
+    public ReferenceDataRegistry(StatusRepository statusRepository,
+                                 AttachmentTypeRepository attachmentTypeRepository,
+                                 EntityManager entityManager) {
+        this.statusRepository = statusRepository;
+        this.attachmentTypeRepository = attachmentTypeRepository;
+        this.entityManager = entityManager;
+        refresh();
+    }
+
+    /**
+     * Reloads both tables and swaps them in at once; lookups running meanwhile see the old rows.
+     */
+    public void refresh() {
+        List<Status> statuses = statusRepository.findAll();
+        List<AttachmentType> attachmentTypes = attachmentTypeRepository.findAll();
+
+        Map<Status.Statuses, Status> statusesByName = new EnumMap<>(Status.Statuses.class);
+        int maxId = statuses.stream().mapToInt(status -> Math.toIntExact(status.getId())).max().orElse(-1);
+        Status[] statusesById = new Status[maxId + 1];
+        for (Status status : statuses) {
+            statusesByName.put(status.getName(), status);
+            statusesById[status.getId().intValue()] = status;
+        }
+        snapshot = new Snapshot(statusesByName, statusesById, attachmentTypes.stream()
+                .collect(Collectors.collectingAndThen(
+                        Collectors.toMap(AttachmentType::getName, Function.identity()), Map::copyOf)));
+        log.info("Loaded {} statuses and {} attachment types", statuses.size(), attachmentTypes.size());
+    }
+
+    public Optional<Status> findStatus(Long id) {
+        Status[] statusesById = snapshot.statusesById();
+        if (id == null || id < 0 || id >= statusesById.length) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(statusesById[id.intValue()]);
+    }
+
+    public Optional<Status> findStatus(Status.Statuses name) {
+        return Optional.ofNullable(snapshot.statusesByName().get(name));
+    }
+
+    public Optional<AttachmentType> findAttachmentType(String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(snapshot.attachmentTypesByName().get(name));
+    }
+
+    public Optional<Status> findStatusReference(Long id) {
+        return findStatus(id).map(status -> entityManager.getReference(Status.class, status.getId()));
+    }
+
+    public Optional<AttachmentType> findAttachmentTypeReference(String name) {
+        return findAttachmentType(name).map(type -> entityManager.getReference(AttachmentType.class, type.getId()));
+    }
+
+    private record Snapshot(Map<Status.Statuses, Status> statusesByName,
+                            Status[] statusesById,
+                            Map<String, AttachmentType> attachmentTypesByName) {
+    }
+}
@@ -1,37 +1,130 @@
 package com.warba.assessment.controller;
 
+import com.warba.assessment.db.ShardRouter;
+import com.warba.assessment.dto.request.InitiateUploadDto;
+import com.warba.assessment.dto.response.UploadSessionDto;
 import com.warba.assessment.entity.Attachment;
+import com.warba.assessment.repository.projection.AttachmentDownloadView;
 import com.warba.assessment.service.AttachmentService;
+import com.warba.assessment.service.ChunkedUploadService;
+import com.warba.assessment.service.StreamingUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api/attachments")
 @RequiredArgsConstructor
 public class AttachmentController {
 
+    private static final String GZIP = "gzip";
+
     private final AttachmentService attachmentService;
+    private final ChunkedUploadService chunkedUploadService;
+    private final StreamingUploadService streamingUploadService;
+    private final ShardRouter shards;
 
+    /**
+     * With sharding on, attachments are stored on the shard of {@code userId}, the owner of the
+     * request they are meant for; without it they go to the first shard.
+     */
     @PostMapping("/upload")
-    public ResponseEntity<Long> uploadFile(@RequestParam("file") MultipartFile file, @RequestParam("type") String type) {
-        Long attachmentId = attachmentService.saveAttachment(file, type);
+    public ResponseEntity<Long> uploadFile(@RequestParam("file") MultipartFile file, @RequestParam("type") String type,
+                                           @RequestParam(value = "userId", required = false) Long userId) {
+        Long attachmentId = shards.callOn(shards.shardOf(userId), () -> attachmentService.saveAttachment(file, type));
         return new ResponseEntity<>(attachmentId, HttpStatus.CREATED);
     }
 
+    @PostMapping("/upload/bulk")
+    public ResponseEntity<List<Long>> uploadFiles(@RequestParam("files") List<MultipartFile> files,
+                                                  @RequestParam("type") List<String> types,
+                                                  @RequestParam(value = "userId", required = false) Long userId) {
+        return new ResponseEntity<>(shards.callOn(shards.shardOf(userId), () -> attachmentService.saveAttachments(files, types)),
+                HttpStatus.CREATED);
+    }
+
+    /**
+     * Same contract as {@code /upload}, but the multipart body is parsed as it arrives and the
+     * file is written to storage once, without being spooled to a servlet temp file first.
+     */
+    @PostMapping(value = "/upload/stream", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<Long> uploadFileStreaming(HttpServletRequest request) {
+        // taken from the query string, since asking the request for a parameter would parse the body
+        String userId = UriComponentsBuilder.newInstance().query(request.getQueryString()).build()
+                .getQueryParams().getFirst("userId");
+        int shard = shards.shardOf(userId == null ? null : Long.valueOf(userId));
+        return new ResponseEntity<>(shards.callOn(shard, () -> streamingUploadService.upload(request)), HttpStatus.CREATED);
+    }
+
+    /**
+     * Like {@code /upload}, the session and the attachment it completes into are kept on the shard
+     * of the optional {@code userId}; later calls find it from the upload id.
+     */
+    @PostMapping("/uploads")
+    public ResponseEntity<UploadSessionDto> initiateUpload(@RequestBody @Valid InitiateUploadDto initiateUploadDto) {
+        return new ResponseEntity<>(chunkedUploadService.initiate(initiateUploadDto), HttpStatus.CREATED);
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<UploadSessionDto> getUpload(@PathVariable String uploadId) {
+        return ResponseEntity.ok(chunkedUploadService.getSession(uploadId));
+    }
+
+    /**
+     * Appends the raw request body at {@code offset}. The body is read as a stream, so chunks are
+     * not subject to the multipart size limit.
+     */
+    @PutMapping(value = "/uploads/{uploadId}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadSessionDto> uploadChunk(@PathVariable String uploadId, @RequestParam("offset") long offset,
+                                                        HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(chunkedUploadService.appendChunk(uploadId, offset, request.getInputStream()));
+    }
+
+    @PostMapping("/uploads/{uploadId}/complete")
+    public ResponseEntity<Long> completeUpload(@PathVariable String uploadId) {
+        return new ResponseEntity<>(chunkedUploadService.complete(uploadId), HttpStatus.CREATED);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Attachment> getAttachment(@PathVariable Long id) {
         return ResponseEntity.ok(attachmentService.getAttachment(id));
     }
 
+    /**
+     * Serves the stored file with a strong ETag taken from its checksum. A matching If-None-Match
+     * is answered with 304 from the attachment row alone; Range requests (single or multiple) are
+     * turned into 206 responses by Spring unless an If-Range validator no longer matches.
+     * <p>
+     * Files stored gzipped are sent as they are, with {@code Content-Encoding: gzip}, to clients that
+     * accept it, and decompressed on the fly (without range support) for the others.
+     */
     @GetMapping("/download/{id}")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable Long id) {
-        String fileName = attachmentService.getAttachment(id).getFileName();
-        byte[] resource = attachmentService.loadFileAsResource(fileName);
+    public ResponseEntity<Resource> downloadFile(@PathVariable Long id, WebRequest webRequest) throws IOException {
+        AttachmentDownloadView attachment = attachmentService.getDownloadView(id);
+        boolean gzipped = GZIP.equals(attachment.getContentEncoding());
+        boolean passThrough = gzipped && acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+        String eTag = attachment.getChecksum() == null ? null
+                : "\"" + attachment.getChecksum() + (passThrough ? "-gzip" : "") + "\"";
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+
+        Resource resource = attachmentService.loadFileAsResource(id, attachment);
+        String fileName = attachment.getOriginalFileName() != null ? attachment.getOriginalFileName() : attachment.getFileName();
 
         // Try to determine content type
         String contentType = "application/octet-stream";
@@ -43,9 +136,42 @@ public class AttachmentController {
             contentType = "image/png";
         }
 
-        return ResponseEntity.ok()
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
                 .contentType(MediaType.parseMediaType(contentType))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
-                .body(resource);
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        if (gzipped) {
+            response.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (passThrough) {
+                response.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+            } else {
+                response.contentLength(attachment.getFileSize());
+                return response.body(new InputStreamResource(new GZIPInputStream(resource.getInputStream())));
+            }
+        }
+        if (!ifRangeMatches(webRequest, eTag)) {
+            // Hide the resource type from Spring's range support so the full representation is sent
+            response.contentLength(resource.contentLength());
+            resource = new InputStreamResource(resource.getInputStream());
+        }
+        return response.body(resource);
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim();
+            if (GZIP.equalsIgnoreCase(name) || "*".equals(name)) {
+                return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    private static boolean ifRangeMatches(WebRequest webRequest, String eTag) {
+        String ifRange = webRequest.getHeader(HttpHeaders.IF_RANGE);
+        return ifRange == null || ifRange.equals(eTag);
     }
-}
\ No newline at end of file
+}
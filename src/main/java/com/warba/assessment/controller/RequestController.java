@@ -1,13 +1,22 @@
 package com.warba.assessment.controller;
 
 import com.warba.assessment.base.ApiResponse;
+import com.warba.assessment.dto.request.BatchCreateRequestDto;
 import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.dto.request.RequestSearchDto;
+import com.warba.assessment.dto.response.BatchItemResultDto;
 import com.warba.assessment.dto.response.RequestDto;
+import com.warba.assessment.dto.response.RequestPageDto;
+import com.warba.assessment.repository.projection.AttachmentDownloadView;
+import com.warba.assessment.service.AttachmentService;
 import com.warba.assessment.service.RequestService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -19,6 +28,7 @@ import static org.springframework.http.HttpStatus.CREATED;
 public class RequestController {
 
     private final RequestService requestService;
+    private final AttachmentService attachmentService;
 
     @PostMapping
     public ResponseEntity<ApiResponse<Long>> createRequest(@RequestBody @Valid CreateRequestDto requestDTO) {
@@ -27,6 +37,17 @@ public class RequestController {
                 .body(ApiResponse.created(requestId, "Request created successfully"));
     }
 
+    /**
+     * Creates many requests in one transaction per shard and reports each item's outcome at its index; an
+     * invalid item does not stop the others from being created.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchItemResultDto>>> createRequests(@RequestBody @Valid BatchCreateRequestDto batch) {
+        List<BatchItemResultDto> results = requestService.createRequests(batch.getRequests());
+        long created = results.stream().filter(result -> result.getRequestId() != null).count();
+        return ResponseEntity.ok(ApiResponse.ok(results, created + " of " + results.size() + " requests created"));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<RequestDto>> getRequest(@PathVariable Long id) {
         RequestDto request = requestService.getRequest(id);
@@ -39,6 +60,30 @@ public class RequestController {
         return ResponseEntity.ok(ApiResponse.ok(requests));
     }
 
+    /**
+     * Pages through the user's requests, newest first, optionally filtered by status and creation
+     * date; pass the returned {@code nextCursor} as {@code cursor} to get the next page.
+     */
+    @GetMapping("/user/{userId}/page")
+    public ResponseEntity<ApiResponse<RequestPageDto>> getRequestPageByUser(@PathVariable Long userId,
+                                                                            @Valid RequestSearchDto search) {
+        RequestPageDto page = requestService.getRequestPageByUser(userId, search);
+        return ResponseEntity.ok(ApiResponse.ok(page));
+    }
+
+    /**
+     * Streams all attachments of the request as one ZIP, built on the fly while it is sent.
+     */
+    @GetMapping("/{id}/attachments.zip")
+    public ResponseEntity<StreamingResponseBody> downloadAttachments(@PathVariable Long id) {
+        List<AttachmentDownloadView> attachments = requestService.getRequestAttachments(id);
+        StreamingResponseBody body = out -> attachmentService.writeZip(attachments, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"request-" + id + "-attachments.zip\"")
+                .body(body);
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity deleteRequest(@PathVariable Long id) {
         requestService.deleteRequest(id);
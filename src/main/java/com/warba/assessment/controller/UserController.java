@@ -1,8 +1,10 @@
 package com.warba.assessment.controller;
 
 import com.warba.assessment.base.ApiResponse;
+import com.warba.assessment.dto.request.BatchCreateUserDto;
 import com.warba.assessment.dto.request.CreateUserDto;
 import com.warba.assessment.dto.request.UpdateUserDto;
+import com.warba.assessment.dto.response.BatchUserResultDto;
 import com.warba.assessment.dto.response.UserDto;
 import com.warba.assessment.service.UserService;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,6 +14,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.Errors;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 import static com.warba.assessment.exception.Messages.VALIDATION_FAILED;
 import static org.springframework.http.HttpStatus.CREATED;
 
@@ -34,6 +38,19 @@ public class UserController {
         return ResponseEntity.status(CREATED).body(ApiResponse.created(userId, "User created successfully"));
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<BatchUserResultDto>>> createUsers(@RequestBody @Valid BatchCreateUserDto batch) {
+        List<BatchUserResultDto> results = userService.createUsers(batch.getUsers());
+        long created = results.stream().filter(result -> result.getUserId() != null).count();
+        return ResponseEntity.ok(ApiResponse.ok(results, created + " of " + results.size() + " users created"));
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<ApiResponse<List<UserDto>>> getUsers(@RequestParam("ids") List<Long> ids) {
+        List<UserDto> users = userService.getUsersByIds(ids);
+        return ResponseEntity.ok(ApiResponse.ok(users, "Users fetched successfully"));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<UserDto>> getUser(@PathVariable("id") Long id) {
         UserDto dto = userService.getUserById(id);
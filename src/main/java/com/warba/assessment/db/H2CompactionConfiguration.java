@@ -0,0 +1,11 @@
+package com.warba.assessment.db;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "h2.compaction.enabled", havingValue = "true")
+public class H2CompactionConfiguration {
+}
@@ -0,0 +1,58 @@
+package com.warba.assessment.db;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.mvstore.FileStore;
+import org.h2.mvstore.MVStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Compacts the file of a file-backed H2 database every {@code h2.compaction.interval}. The MVStore
+ * never overwrites pages in place, so a write-heavy database keeps growing until its chunks are
+ * rewritten; H2 only does that on its own when the database closes, for at most
+ * {@code MAX_COMPACT_TIME}, which a long-running node rarely gets to.
+ * <p>
+ * A run moves live pages out of sparsely filled chunks for at most {@code h2.compaction.max-time}
+ * while the database stays online. Writes wait on the store during that time, so keep it short.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "h2.compaction.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class H2Compactor {
+
+    @Value("${h2.compaction.max-time:PT10S}")
+    private Duration maxTime;
+
+    private final DataSource dataSource;
+
+    @Scheduled(initialDelayString = "${h2.compaction.interval:PT6H}", fixedDelayString = "${h2.compaction.interval:PT6H}")
+    public void compact() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            SessionLocal session = (SessionLocal) connection.unwrap(JdbcConnection.class).getSession();
+            MVStore store = session.getDatabase().getStore().getMvStore();
+            FileStore<?> file = store.getFileStore();
+            if (file == null) {
+                // in-memory database, nothing to shrink
+                return;
+            }
+            long sizeBefore = file.size();
+            int fillRateBefore = file.getFillRate();
+            long start = System.nanoTime();
+            store.compactFile(Math.toIntExact(maxTime.toMillis()));
+            log.info("Compacted database file from {} KB ({}% full) to {} KB ({}% full) in {} ms",
+                    sizeBefore / 1024, fillRateBefore, file.size() / 1024, file.getFillRate(),
+                    Duration.ofNanos(System.nanoTime() - start).toMillis());
+        }
+    }
+}
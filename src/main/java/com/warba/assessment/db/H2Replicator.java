@@ -0,0 +1,144 @@
+package com.warba.assessment.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Stands in for database replication when the primary and the replica are two local H2 databases.
+ * Once the application is ready, and then every {@code datasource.replica.replicator.interval}, it copies all rows of the schema from a
+ * snapshot of the primary into the replica in one transaction, so the replica lags by up to the
+ * interval and readers never see a half-applied copy. The first run creates the schema on the
+ * replica from the primary's DDL, without foreign-key checks, since rows are copied table by table,
+ * and then lets reads go to the replica.
+ * <p>
+ * Each run copies the whole schema; use it for development and tests only.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "datasource.replica.replicator.enabled", havingValue = "true")
+public class H2Replicator {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final DataSource primary;
+    private final DataSource replica;
+    private final ReadWriteRoutingDataSource routingDataSource;
+    private final String schema;
+    private volatile List<String> tables;
+
+    public H2Replicator(@Qualifier("primaryDataSource") DataSource primary,
+                        @Qualifier("replicaDataSource") DataSource replica,
+                        ReadWriteRoutingDataSource routingDataSource,
+                        @Value("${DB_SCHEMA:WARBA}") String schema) {
+        this.primary = primary;
+        this.replica = replica;
+        this.routingDataSource = routingDataSource;
+        this.schema = schema;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${datasource.replica.replicator.interval:PT1S}",
+            fixedDelayString = "${datasource.replica.replicator.interval:PT1S}")
+    public synchronized void replicate() throws SQLException {
+        try (Connection source = primary.getConnection(); Connection target = replica.getConnection()) {
+            source.setAutoCommit(false);
+            source.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            if (tables == null) {
+                tables = createSchema(source, target);
+            }
+            target.setAutoCommit(false);
+            try {
+                for (String table : tables) {
+                    copy(source, target, table);
+                }
+                target.commit();
+                routingDataSource.setReplicaReady(true);
+            } catch (SQLException ex) {
+                target.rollback();
+                throw ex;
+            } finally {
+                source.commit();
+            }
+        }
+    }
+
+    private List<String> createSchema(Connection source, Connection target) throws SQLException {
+        List<String> tables = new ArrayList<>();
+        try (PreparedStatement select = source.prepareStatement("""
+                SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES
+                WHERE TABLE_SCHEMA = ? AND TABLE_TYPE = 'BASE TABLE' ORDER BY TABLE_NAME
+                """)) {
+            select.setString(1, schema);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    tables.add(rows.getString(1));
+                }
+            }
+        }
+        try (Statement script = source.createStatement();
+             ResultSet statements = script.executeQuery("SCRIPT NODATA NOPASSWORDS NOSETTINGS SCHEMA " + quote(schema));
+             Statement ddl = target.createStatement()) {
+            ddl.execute("DROP SCHEMA IF EXISTS " + quote(schema) + " CASCADE");
+            while (statements.next()) {
+                String sql = statements.getString(1);
+                if (!sql.startsWith("CREATE USER")) {
+                    ddl.execute(sql);
+                }
+            }
+            for (String table : tables) {
+                ddl.execute("ALTER TABLE " + qualified(table) + " SET REFERENTIAL_INTEGRITY FALSE");
+            }
+        }
+        log.info("Created {} tables of schema {} on the replica", tables.size(), schema);
+        return Collections.unmodifiableList(tables);
+    }
+
+    private void copy(Connection source, Connection target, String table) throws SQLException {
+        try (Statement delete = target.createStatement()) {
+            delete.executeUpdate("DELETE FROM " + qualified(table));
+        }
+        try (Statement select = source.createStatement();
+             ResultSet rows = select.executeQuery("SELECT * FROM " + qualified(table))) {
+            int columns = rows.getMetaData().getColumnCount();
+            String placeholders = String.join(", ", Collections.nCopies(columns, "?"));
+            try (PreparedStatement insert = target.prepareStatement(
+                    "INSERT INTO " + qualified(table) + " VALUES (" + placeholders + ")")) {
+                int batched = 0;
+                while (rows.next()) {
+                    for (int column = 1; column <= columns; column++) {
+                        insert.setObject(column, rows.getObject(column));
+                    }
+                    insert.addBatch();
+                    if (++batched % BATCH_SIZE == 0) {
+                        insert.executeBatch();
+                    }
+                }
+                insert.executeBatch();
+            }
+        }
+    }
+
+    private String qualified(String table) {
+        return quote(schema) + "." + quote(table);
+    }
+
+    private static String quote(String identifier) {
+        return '"' + identifier.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,62 @@
+package com.warba.assessment.db;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Hands out replica connections to read-only transactions and primary connections to everything
+ * else. The transaction has to be known when the connection is taken, so this must sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}; the transaction
+ * manager asks for a connection before it marks the transaction read-only.
+ * <p>
+ * For {@code readYourWritesWindow} after a write transaction commits, read-only transactions go
+ * to the primary as well, so a client that reads right after writing does not miss its change
+ * while the replica catches up. The window is shared by all clients, since requests carry no
+ * session to tie a write to its reader; keep it above the usual replication lag.
+ * <p>
+ * Until the replica is marked ready, everything goes to the primary.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    public enum Target {
+        PRIMARY, REPLICA
+    }
+
+    private final long readYourWritesWindowNanos;
+    private volatile long primaryUntilNanos = System.nanoTime();
+    private volatile boolean replicaReady;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, Duration readYourWritesWindow,
+                                      boolean replicaReady) {
+        this.readYourWritesWindowNanos = readYourWritesWindow.toNanos();
+        this.replicaReady = replicaReady;
+        setTargetDataSources(Map.of(Target.PRIMARY, primary, Target.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    public void setReplicaReady(boolean replicaReady) {
+        this.replicaReady = replicaReady;
+    }
+
+    @Override
+    protected Target determineCurrentLookupKey() {
+        if (TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return replicaReady && System.nanoTime() - primaryUntilNanos >= 0 ? Target.REPLICA : Target.PRIMARY;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    primaryUntilNanos = System.nanoTime() + readYourWritesWindowNanos;
+                }
+            });
+        }
+        return Target.PRIMARY;
+    }
+}
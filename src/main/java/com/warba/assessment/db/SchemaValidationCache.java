@@ -0,0 +1,123 @@
+package com.warba.assessment.db;
+
+import com.warba.assessment.entity.User;
+import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
+import org.hibernate.Version;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lets Hibernate skip validating the schema on start when neither the schema nor the entity
+ * mappings changed since a start that validated them. The schema is identified by the versions and
+ * checksums Flyway recorded for the applied migrations, the mappings by the bytes of the entity
+ * classes; their fingerprint is written to {@code SCHEMA_VALIDATION} once a validating start is
+ * ready.
+ * <p>
+ * A fresh in-memory database has no fingerprint, so this only saves time on a durable database.
+ * With sharding every shard is migrated alike and the fingerprint is kept on the first.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "datasource.schema-validation.skip-unchanged", havingValue = "true")
+public class SchemaValidationCache implements HibernatePropertiesCustomizer {
+
+    private static final String ENTITY_CLASSES = "classpath*:"
+            + ClassUtils.convertClassNameToResourcePath(User.class.getPackageName()) + "/**/*.class";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Flyway flyway;
+
+    private volatile String validatedFingerprint;
+
+    public SchemaValidationCache(DataSource dataSource, Flyway flyway) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.flyway = flyway;
+    }
+
+    /**
+     * Called while the entity manager factory is built, after Flyway migrated the database.
+     */
+    @Override
+    public void customize(Map<String, Object> hibernateProperties) {
+        if (!"validate".equals(hibernateProperties.get(AvailableSettings.HBM2DDL_AUTO))) {
+            return;
+        }
+        String fingerprint = fingerprint();
+        if (fingerprint.equals(lastValidated())) {
+            log.info("Schema and entities unchanged since they were last validated, skipping validation");
+            hibernateProperties.put(AvailableSettings.HBM2DDL_AUTO, "none");
+        } else {
+            validatedFingerprint = fingerprint;
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recordValidation() {
+        if (validatedFingerprint != null) {
+            jdbcTemplate.update("MERGE INTO " + schema() + ".SCHEMA_VALIDATION (ID, FINGERPRINT, VALIDATED_AT)"
+                    + " KEY (ID) VALUES (1, ?, CURRENT_TIMESTAMP)", validatedFingerprint);
+            validatedFingerprint = null;
+        }
+    }
+
+    private String lastValidated() {
+        List<String> fingerprints = jdbcTemplate.queryForList(
+                "SELECT FINGERPRINT FROM " + schema() + ".SCHEMA_VALIDATION WHERE ID = 1", String.class);
+        return fingerprints.isEmpty() ? null : fingerprints.get(0);
+    }
+
+    private String fingerprint() {
+        MessageDigest digest = sha256();
+        digest.update(Version.getVersionString().getBytes(StandardCharsets.UTF_8));
+        jdbcTemplate.query("SELECT \"version\", \"checksum\" FROM " + schema() + ".\"" + flyway.getConfiguration().getTable()
+                        + "\" WHERE \"success\" ORDER BY \"installed_rank\"",
+                (RowCallbackHandler) row -> digest.update((row.getString(1) + ":" + row.getInt(2) + ";").getBytes(StandardCharsets.UTF_8)));
+        try {
+            Resource[] classes = new PathMatchingResourcePatternResolver().getResources(ENTITY_CLASSES);
+            Arrays.sort(classes, Comparator.comparing(Resource::getFilename));
+            for (Resource entity : classes) {
+                try (InputStream in = entity.getInputStream()) {
+                    digest.update(in.readAllBytes());
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String schema() {
+        return flyway.getConfiguration().getDefaultSchema();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.warba.assessment.db;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The shard the current thread works on, read by {@link ShardRoutingDataSource} when a transaction
+ * takes its connection. Unset means the first shard.
+ */
+final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    static Integer current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Switches to {@code shard} and returns the shard to {@link #restore} afterwards. A transaction
+     * keeps the connection it took, so switching to another shard inside one is refused.
+     */
+    static Integer enter(int shard) {
+        Integer previous = CURRENT.get();
+        if (previous != null && previous != shard && TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Cannot move to shard " + shard + " inside a transaction on shard " + previous);
+        }
+        CURRENT.set(shard);
+        return previous;
+    }
+
+    static void restore(Integer previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+}
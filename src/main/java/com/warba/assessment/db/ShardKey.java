@@ -0,0 +1,22 @@
+package com.warba.assessment.db;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks the parameter that decides which shard a service method runs on: a user, request or
+ * attachment id, whose shard is encoded in it, or a string key such as a civil ID, which is hashed.
+ * With {@link #value()} set, that property of the argument is used instead of the argument itself.
+ * <p>
+ * Only has an effect with {@code datasource.sharding.enabled}; see {@link ShardRouter}.
+ */
+@Documented
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ShardKey {
+
+    String value() default "";
+}
@@ -0,0 +1,82 @@
+package com.warba.assessment.db;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.aop.support.StaticMethodMatcherPointcutAdvisor;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.core.Ordered;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs methods with a {@link ShardKey} parameter on the shard that parameter points at. It is
+ * ordered before the transaction advice, so the transaction takes its connection from that shard.
+ */
+class ShardKeyAdvisor extends StaticMethodMatcherPointcutAdvisor implements MethodInterceptor {
+
+    private final ObjectProvider<ShardRouter> shards;
+    private final Map<Method, Optional<KeyParameter>> parameters = new ConcurrentHashMap<>();
+
+    ShardKeyAdvisor(ObjectProvider<ShardRouter> shards) {
+        this.shards = shards;
+        setAdvice(this);
+        setOrder(Ordered.HIGHEST_PRECEDENCE);
+    }
+
+    @Override
+    public boolean matches(Method method, Class<?> targetClass) {
+        return parameter(AopUtils.getMostSpecificMethod(method, targetClass)).isPresent();
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = AopUtils.getMostSpecificMethod(invocation.getMethod(), AopUtils.getTargetClass(invocation.getThis()));
+        KeyParameter parameter = parameter(method).orElseThrow();
+        Integer previous = ShardContext.enter(shardOf(parameter.key(invocation.getArguments()[parameter.index()])));
+        try {
+            return invocation.proceed();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    private int shardOf(Object key) {
+        if (key instanceof String value) {
+            return shards.getObject().shardOf(value);
+        }
+        if (key instanceof Number value) {
+            return shards.getObject().shardOf(value.longValue());
+        }
+        if (key == null) {
+            return 0;
+        }
+        throw new IllegalArgumentException("Cannot route on a shard key of type " + key.getClass().getName());
+    }
+
+    private Optional<KeyParameter> parameter(Method method) {
+        return parameters.computeIfAbsent(method, m -> {
+            Parameter[] declared = m.getParameters();
+            for (int index = 0; index < declared.length; index++) {
+                ShardKey shardKey = declared[index].getAnnotation(ShardKey.class);
+                if (shardKey != null) {
+                    return Optional.of(new KeyParameter(index, shardKey.value()));
+                }
+            }
+            return Optional.empty();
+        });
+    }
+
+    private record KeyParameter(int index, String property) {
+
+        Object key(Object argument) {
+            return property.isEmpty() || argument == null ? argument
+                    : PropertyAccessorFactory.forBeanPropertyAccess(argument).getPropertyValue(property);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.warba.assessment.db;
+
+import org.hibernate.id.IntegralDataTypeHolder;
+import org.hibernate.id.enhanced.AccessCallback;
+import org.hibernate.id.enhanced.Optimizer;
+import org.hibernate.id.enhanced.PooledLoOptimizer;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The pooled-lo optimizer with one block of ids per shard. Hibernate keeps a single block per
+ * sequence, which would hand ids taken from one shard's sequence to rows inserted on another;
+ * this one takes the block from the shard the current thread works on. Selected with
+ * {@code hibernate.id.optimizer.pooled.preferred} set to this class.
+ */
+public class ShardPooledLoOptimizer implements Optimizer {
+
+    private final Class<?> returnClass;
+    private final int incrementSize;
+    private final Map<Integer, PooledLoOptimizer> optimizers = new ConcurrentHashMap<>();
+
+    public ShardPooledLoOptimizer(Class<?> returnClass, int incrementSize) {
+        this.returnClass = returnClass;
+        this.incrementSize = incrementSize;
+    }
+
+    @Override
+    public Serializable generate(AccessCallback callback) {
+        return current().generate(callback);
+    }
+
+    @Override
+    public IntegralDataTypeHolder getLastSourceValue() {
+        return current().getLastSourceValue();
+    }
+
+    @Override
+    public int getIncrementSize() {
+        return incrementSize;
+    }
+
+    @Override
+    public boolean applyIncrementSizeToSourceValues() {
+        return true;
+    }
+
+    private PooledLoOptimizer current() {
+        Integer shard = ShardContext.current();
+        return optimizers.computeIfAbsent(shard == null ? 0 : shard, key -> new PooledLoOptimizer(returnClass, incrementSize));
+    }
+}
@@ -0,0 +1,102 @@
+package com.warba.assessment.db;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Tells which shard an id or key belongs to and runs work there.
+ * <p>
+ * A user lives on the shard their civil ID hashes to, together with their requests and
+ * attachments, so everything about one owner is read and written on one database. Every shard but
+ * the first starts its id sequences at {@code shard << SHARD_SHIFT}, so the shard of a user,
+ * request or attachment can be read off its id without a lookup.
+ * <p>
+ * With sharding off there is one shard and work simply runs in the caller's transaction.
+ */
+@Component
+public class ShardRouter {
+
+    public static final int SHARD_SHIFT = 40;
+
+    private final int shardCount;
+    private final ObjectProvider<PlatformTransactionManager> transactionManager;
+
+    public ShardRouter(@Value("${datasource.sharding.enabled:false}") boolean enabled,
+                       @Value("${datasource.sharding.urls:}") List<String> urls,
+                       ObjectProvider<PlatformTransactionManager> transactionManager) {
+        this.shardCount = enabled ? 1 + urls.size() : 1;
+        this.transactionManager = transactionManager;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * The shard encoded in a user, request or attachment id. Ids of no shard map to the first one,
+     * where they are not found either.
+     */
+    public int shardOf(Long id) {
+        if (id == null || shardCount == 1) {
+            return 0;
+        }
+        long shard = id >>> SHARD_SHIFT;
+        return shard < shardCount ? (int) shard : 0;
+    }
+
+    /**
+     * The shard a new user with this key, i.e. their civil ID, is placed on.
+     */
+    public int shardOf(String key) {
+        return key == null ? 0 : Math.floorMod(key.hashCode(), shardCount);
+    }
+
+    public <T> T callOn(int shard, Supplier<T> work) {
+        if (shardCount == 1) {
+            return work.get();
+        }
+        Integer previous = ShardContext.enter(shard);
+        try {
+            return work.get();
+        } finally {
+            ShardContext.restore(previous);
+        }
+    }
+
+    /**
+     * Splits {@code keys} by shard and applies {@code work} to each part on its shard, in a
+     * transaction of its own. A failure on one shard leaves the parts already done on the others
+     * committed. With one shard, {@code work} gets all keys in the caller's transaction.
+     */
+    public <K, R> List<R> onEachShard(Collection<K> keys, ToIntFunction<K> shardOf, Function<Collection<K>, R> work) {
+        if (shardCount == 1) {
+            return Collections.singletonList(work.apply(keys));
+        }
+        Map<Integer, List<K>> keysByShard = new TreeMap<>();
+        for (K key : keys) {
+            keysByShard.computeIfAbsent(shardOf.applyAsInt(key), shard -> new ArrayList<>()).add(key);
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager.getObject());
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transaction.setReadOnly(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+        List<R> results = new ArrayList<>(keysByShard.size());
+        keysByShard.forEach((shard, shardKeys) ->
+                results.add(callOn(shard, () -> transaction.execute(status -> work.apply(shardKeys)))));
+        return results;
+    }
+}
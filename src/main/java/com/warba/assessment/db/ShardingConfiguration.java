@@ -0,0 +1,114 @@
+package com.warba.assessment.db;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.aop.Advisor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the single connection pool with one per shard: {@code spring.datasource.url} is the
+ * first shard and {@code datasource.sharding.urls} lists the others, all sharing the credentials
+ * and pool settings of {@code spring.datasource.*}. Connections taken outside a sharded call, such
+ * as those of the reference data, go to the first shard.
+ */
+@Configuration
+@ConditionalOnProperty(name = "datasource.sharding.enabled", havingValue = "true")
+public class ShardingConfiguration {
+
+    /**
+     * The sequences behind the ids {@link ShardRouter} reads the shard from.
+     */
+    static final List<String> SHARDED_SEQUENCES = List.of("USER_SEQ", "REQUEST_SEQ", "ATTACHMENT_SEQ");
+
+    /**
+     * Blob reference counts are kept per shard, so one shard could delete a file another still
+     * uses; and the replica routing would need a replica per shard.
+     */
+    @Bean
+    public ShardRoutingDataSource shardRoutingDataSource(DataSourceProperties properties,
+                                                         Environment environment,
+                                                         @Value("${datasource.sharding.urls}") List<String> urls,
+                                                         @Value("${file.storage.content-addressed:false}") boolean contentAddressed,
+                                                         @Value("${datasource.routing.enabled:false}") boolean routing) {
+        if (contentAddressed) {
+            throw new IllegalStateException("Sharding needs file.storage.content-addressed=false");
+        }
+        if (routing) {
+            throw new IllegalStateException("Sharding and datasource.routing.enabled cannot be combined");
+        }
+        List<String> shardUrls = new ArrayList<>();
+        shardUrls.add(properties.determineUrl());
+        shardUrls.addAll(urls);
+        List<HikariDataSource> shards = new ArrayList<>();
+        for (int shard = 0; shard < shardUrls.size(); shard++) {
+            HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(shardUrls.get(shard))
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(dataSource));
+            dataSource.setPoolName("shard-" + shard);
+            shards.add(dataSource);
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardRoutingDataSource shardRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(shardRoutingDataSource);
+    }
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public static Advisor shardKeyAdvisor(ObjectProvider<ShardRouter> shards) {
+        return new ShardKeyAdvisor(shards);
+    }
+
+    /**
+     * Migrates every shard, then moves the id sequences of each shard but the first to start at
+     * {@code shard << SHARD_SHIFT}. Sequences already past that point are left alone, so this is
+     * safe on every start.
+     */
+    @Bean
+    public FlywayMigrationStrategy shardedMigrationStrategy(ShardRoutingDataSource shardRoutingDataSource) {
+        return flyway -> {
+            List<HikariDataSource> shards = shardRoutingDataSource.getShards();
+            String schema = flyway.getConfiguration().getDefaultSchema();
+            for (int shard = 0; shard < shards.size(); shard++) {
+                Flyway.configure().configuration(flyway.getConfiguration()).dataSource(shards.get(shard)).load().migrate();
+                if (shard > 0) {
+                    startSequencesAt(new JdbcTemplate(shards.get(shard)), schema, ((long) shard << ShardRouter.SHARD_SHIFT) + 1);
+                }
+            }
+        };
+    }
+
+    private static void startSequencesAt(JdbcTemplate jdbcTemplate, String schema, long first) {
+        for (String sequence : SHARDED_SEQUENCES) {
+            Long next = jdbcTemplate.queryForObject(
+                    "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_SCHEMA = ? AND SEQUENCE_NAME = ?",
+                    Long.class, schema, sequence);
+            if (next != null && next < first) {
+                jdbcTemplate.execute("ALTER SEQUENCE " + schema + "." + sequence + " RESTART WITH " + first);
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.warba.assessment.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Items are validated one by one by the service, so an invalid item is reported in its result
+ * instead of rejecting the whole batch. Only a missing item rejects it, since there is nothing to
+ * report a result for.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCreateRequestDto {
+    @NotEmpty(message = "At least one request is required")
+    @Size(max = 1000, message = "At most 1000 requests can be created at once")
+    private List<@NotNull(message = "Requests must not contain null items") CreateRequestDto> requests;
+}
@@ -0,0 +1,32 @@
+package com.warba.assessment.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class InitiateUploadDto {
+    @NotBlank(message = "File name is required")
+    private String fileName;
+
+    @NotBlank(message = "Attachment type is required")
+    private String type;
+
+    @NotNull(message = "Total size is required")
+    @Positive(message = "Total size must be positive")
+    private Long totalSize;
+
+    private String contentType;
+
+    /**
+     * Owner of the request the upload is meant for; with sharding on it is kept on their shard.
+     */
+    private Long userId;
+}
@@ -0,0 +1,20 @@
+package com.warba.assessment.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of a batch, at the item's position in the batch: the id of the created
+ * request, or why it was not created.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDto {
+    private int index;
+    private Long requestId;
+    private String error;
+}
@@ -0,0 +1,20 @@
+package com.warba.assessment.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one user of a batch, at the user's position in the batch: the id of the created or
+ * reactivated user, or why it was not created.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUserResultDto {
+    private int index;
+    private Long userId;
+    private String error;
+}
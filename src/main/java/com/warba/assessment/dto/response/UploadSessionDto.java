@@ -0,0 +1,17 @@
+package com.warba.assessment.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDto {
+    private String id;
+    private String fileName;
+    private Long offset;
+    private Long totalSize;
+}
@@ -1,11 +1,14 @@
 package com.warba.assessment.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
 
@@ -18,16 +21,28 @@ public class Attachment {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ATTACHMENT_SEQ")
-    @SequenceGenerator(name = "ATTACHMENT_SEQ", sequenceName = "WARBA.ATTACHMENT_SEQ", allocationSize = 1)
+    @SequenceGenerator(name = "ATTACHMENT_SEQ", sequenceName = "WARBA.ATTACHMENT_SEQ", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "File name is required")
     @Column(name = "FILE_NAME")
     private String fileName;
 
+    @Column(name = "ORIGINAL_FILE_NAME")
+    private String originalFileName;
+
     @Column(name = "FILE_TYPE")
     private String fileType;
 
+    @Column(name = "FILE_SIZE")
+    private Long fileSize;
+
+    @Column(name = "CHECKSUM")
+    private String checksum;
+
+    @Column(name = "CONTENT_ENCODING")
+    private String contentEncoding;
+
     @Column(name = "UPLOAD_DATE_TIME")
     private LocalDateTime uploadDateTime = LocalDateTime.now();
 
@@ -36,8 +51,11 @@ public class Attachment {
     @NotNull(message = "Attachment type is required")
     private AttachmentType attachmentType;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "REQUEST_ID")
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
     private Request request;
 
 }
\ No newline at end of file
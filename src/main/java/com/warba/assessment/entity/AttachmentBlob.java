@@ -0,0 +1,35 @@
+package com.warba.assessment.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "ATTACHMENT_BLOBS", schema = "WARBA")
+public class AttachmentBlob {
+
+    @Id
+    @Column(name = "DIGEST")
+    private String digest;
+
+    @Column(name = "FILE_SIZE")
+    private Long fileSize;
+
+    @Column(name = "REF_COUNT")
+    private Integer refCount;
+
+    @Column(name = "CREATED_AT")
+    private LocalDateTime createdAt;
+
+    @Column(name = "RELEASED_AT")
+    private LocalDateTime releasedAt;
+}
@@ -0,0 +1,29 @@
+package com.warba.assessment.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "GC_CURSORS", schema = "WARBA")
+public class GcCursor {
+
+    @Id
+    @Column(name = "NAME")
+    private String name;
+
+    @Column(name = "POSITION")
+    private String position;
+
+    @Column(name = "UPDATED_AT")
+    private LocalDateTime updatedAt;
+}
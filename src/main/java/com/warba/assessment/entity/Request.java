@@ -21,19 +21,19 @@ public class Request {
 
     @Id
     @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "REQUEST_SEQ")
-    @SequenceGenerator(name = "REQUEST_SEQ", sequenceName = "WARBA.REQUEST_SEQ", allocationSize = 1)
+    @SequenceGenerator(name = "REQUEST_SEQ", sequenceName = "WARBA.REQUEST_SEQ", allocationSize = 50)
     private Long id;
 
     @NotBlank(message = "Request name is required")
     @Column(name = "REQUEST_NAME")
     private String requestName;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "STATUS_ID")
     @NotNull(message = "Status is required")
     private Status status;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "OWNER_ID")
     @NotNull(message = "User is required")
     private User owner;
@@ -0,0 +1,38 @@
+package com.warba.assessment.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "UPLOAD_SESSIONS", schema = "WARBA")
+public class UploadSession {
+
+    @Id
+    @Column(name = "ID")
+    private String id;
+
+    @Column(name = "FILE_NAME")
+    private String fileName;
+
+    @Column(name = "FILE_TYPE")
+    private String fileType;
+
+    @Column(name = "ATTACHMENT_TYPE")
+    private String attachmentType;
+
+    @Column(name = "TOTAL_SIZE")
+    private Long totalSize;
+
+    @Column(name = "CREATED_AT")
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
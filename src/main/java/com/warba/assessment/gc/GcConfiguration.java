@@ -0,0 +1,11 @@
+package com.warba.assessment.gc;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "file.gc.enabled", havingValue = "true")
+public class GcConfiguration {
+}
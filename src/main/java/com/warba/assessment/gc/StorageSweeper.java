@@ -0,0 +1,282 @@
+package com.warba.assessment.gc;
+
+import com.warba.assessment.cache.AttachmentCache;
+import com.warba.assessment.db.ShardRouter;
+import com.warba.assessment.entity.AttachmentBlob;
+import com.warba.assessment.entity.GcCursor;
+import com.warba.assessment.exception.FileStorageException;
+import com.warba.assessment.repository.AttachmentBlobRepository;
+import com.warba.assessment.repository.AttachmentRepository;
+import com.warba.assessment.repository.GcCursorRepository;
+import com.warba.assessment.repository.projection.AttachmentSweepView;
+import com.warba.assessment.service.ChunkedUploadService;
+import com.warba.assessment.storage.StorageBackend;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.IntSupplier;
+
+/**
+ * Reclaims attachments that were uploaded but never linked to a request, blobs nobody references
+ * any more, stored files without a row and abandoned chunked uploads.
+ * <p>
+ * Each run looks at one batch of {@code file.gc.batch-size} rows or keys per phase and remembers
+ * where it stopped in {@code GC_CURSORS}, so a run is short, the table and the storage are walked
+ * a little at a time across runs and restarts, and the fixed delay between runs caps the I/O the
+ * sweeper takes from foreground requests. Anything younger than {@code file.gc.orphan-ttl} is left
+ * alone, since an upload may be linked to a request, or its row committed, a while after it is stored.
+ * <p>
+ * With sharding on, the row phases run on every shard, each with its own cursors, and a stored
+ * file is kept while any shard points at it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "file.gc.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class StorageSweeper {
+
+    static final String ATTACHMENTS = "attachments";
+    static final String BLOBS = "blobs";
+    static final String FILES = "files";
+
+    /**
+     * Appended to the key of a blob file while the transaction that deleted its row is under way.
+     */
+    static final String DISCARDED_SUFFIX = ".discarded";
+
+    @Value("${file.gc.batch-size:100}")
+    private int batchSize;
+
+    @Value("${file.gc.orphan-ttl:PT24H}")
+    private Duration orphanTtl;
+
+    /**
+     * How long a blob stays after its last reference went, so content uploaded again soon after
+     * is not stored anew.
+     */
+    @Value("${file.gc.blob-grace-period:PT1H}")
+    private Duration blobGracePeriod;
+
+    @Value("${file.storage.content-addressed:false}")
+    private boolean contentAddressed;
+
+    private final AttachmentRepository attachmentRepository;
+    private final AttachmentBlobRepository attachmentBlobRepository;
+    private final GcCursorRepository gcCursorRepository;
+    private final StorageBackend storageBackend;
+    private final AttachmentCache attachmentCache;
+    private final ChunkedUploadService chunkedUploadService;
+    private final TransactionTemplate transactionTemplate;
+    private final ShardRouter shards;
+
+    @Scheduled(initialDelayString = "${file.gc.interval:PT1M}", fixedDelayString = "${file.gc.interval:PT1M}")
+    public SweepResult sweep() {
+        SweepResult result = new SweepResult(
+                onEveryShard(this::sweepAttachments),
+                onEveryShard(this::sweepBlobs),
+                sweepFiles(),
+                onEveryShard(() -> chunkedUploadService.expireSessions(LocalDateTime.now().minus(orphanTtl), batchSize)));
+        if (result.total() > 0) {
+            log.info("Storage sweep reclaimed {}", result);
+        }
+        return result;
+    }
+
+    private int onEveryShard(IntSupplier phase) {
+        int count = 0;
+        for (int shard = 0; shard < shards.shardCount(); shard++) {
+            count += shards.callOn(shard, phase::getAsInt);
+        }
+        return count;
+    }
+
+    /**
+     * Deletes unlinked attachments past the TTL from the next batch of attachment ids. Their blob
+     * reference is released; files stored under a unique name are deleted once the rows are gone.
+     */
+    int sweepAttachments() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(orphanTtl);
+        List<String> orphanFiles = new ArrayList<>();
+        Integer deleted = transactionTemplate.execute(status -> {
+            String cursor = cursor(ATTACHMENTS);
+            List<AttachmentSweepView> batch = attachmentRepository.findSweepViews(
+                    cursor == null ? 0L : Long.parseLong(cursor), Limit.of(batchSize));
+            int count = 0;
+            for (AttachmentSweepView attachment : batch) {
+                if (attachment.getRequestId() == null && attachment.getUploadDateTime().isBefore(cutoff)
+                        && attachmentRepository.deleteOrphan(attachment.getId()) == 1) {
+                    attachmentCache.evictOnCommit(List.of(attachment.getId()));
+                    if (contentAddressed) {
+                        attachmentBlobRepository.releaseReferences(attachment.getFileName(), 1);
+                    } else {
+                        orphanFiles.add(attachment.getFileName());
+                    }
+                    count++;
+                }
+            }
+            saveCursor(ATTACHMENTS, batch.size() < batchSize ? null : String.valueOf(batch.get(batch.size() - 1).getId()));
+            return count;
+        });
+        orphanFiles.forEach(this::deleteFile);
+        return deleted;
+    }
+
+    /**
+     * Deletes blobs from the next batch that have had no reference for longer than the grace
+     * period. The row is deleted only while its count is still zero, and the file only once that
+     * deletion has committed.
+     */
+    int sweepBlobs() {
+        LocalDateTime releasedBefore = LocalDateTime.now().minus(blobGracePeriod);
+        return transactionTemplate.execute(status -> {
+            String cursor = cursor(BLOBS);
+            List<AttachmentBlob> batch = attachmentBlobRepository.findByDigestGreaterThanOrderByDigest(
+                    cursor == null ? "" : cursor, Limit.of(batchSize));
+            int count = 0;
+            for (AttachmentBlob blob : batch) {
+                if (blob.getRefCount() == 0 && blob.getReleasedAt() != null && blob.getReleasedAt().isBefore(releasedBefore)
+                        && attachmentBlobRepository.deleteReleased(blob.getDigest(), releasedBefore) == 1) {
+                    discardOnCommit(blob.getDigest());
+                    count++;
+                }
+            }
+            saveCursor(BLOBS, batch.size() < batchSize ? null : batch.get(batch.size() - 1).getDigest());
+            return count;
+        });
+    }
+
+    /**
+     * Moves the file of a blob whose row the current transaction deleted aside while that row is
+     * still locked, deletes it once the transaction commits and puts it back if it rolls back. An
+     * upload of the same content takes its reference before it looks for the file, so it waits for
+     * this transaction and then finds no file and stores it again instead of reusing one that is
+     * about to go.
+     */
+    private void discardOnCommit(String key) {
+        String discarded = key + DISCARDED_SUFFIX;
+        try {
+            if (!storageBackend.move(key, discarded)) {
+                return;
+            }
+        } catch (IOException ex) {
+            // the file has no row any more, so the next lap over the storage picks it up again
+            log.warn("Could not move stored file {} aside", key, ex);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteFile(discarded);
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    try {
+                        storageBackend.move(discarded, key);
+                    } catch (IOException ex) {
+                        log.warn("Could not restore stored file {}", key, ex);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes files from the next page of the storage listing that are past the TTL and that
+     * neither an attachment nor a blob row points at, e.g. the files of deleted requests.
+     * <p>
+     * With content-addressed storage an upload may be about to reuse such a file under a row it has
+     * not committed yet, so the file is registered as a released blob instead and left to
+     * {@link #sweepBlobs()}, which deletes it under the row lock.
+     */
+    int sweepFiles() {
+        Instant cutoff = Instant.now().minus(orphanTtl);
+        StorageBackend.KeyBatch batch;
+        try {
+            batch = storageBackend.listKeys(cursor(FILES), batchSize);
+        } catch (IOException ex) {
+            log.warn("Could not list the stored files", ex);
+            return 0;
+        }
+        List<String> candidates = batch.keys().stream()
+                .filter(key -> key.lastModified().isBefore(cutoff))
+                .map(StorageBackend.StoredKey::key)
+                .toList();
+        int count = 0;
+        if (!candidates.isEmpty()) {
+            Set<String> referenced = new HashSet<>();
+            for (int shard = 0; shard < shards.shardCount(); shard++) {
+                shards.callOn(shard, () -> {
+                    referenced.addAll(attachmentRepository.findFileNamesIn(candidates));
+                    attachmentBlobRepository.findAllById(candidates).forEach(blob -> referenced.add(blob.getDigest()));
+                    return null;
+                });
+            }
+            List<String> unreferenced = candidates.stream().filter(key -> !referenced.contains(key)).toList();
+            if (contentAddressed) {
+                transactionTemplate.executeWithoutResult(status -> unreferenced.forEach(this::registerReleased));
+            } else {
+                for (String key : unreferenced) {
+                    if (deleteFile(key)) {
+                        count++;
+                    }
+                }
+            }
+        }
+        saveCursor(FILES, batch.nextCursor());
+        return count;
+    }
+
+    private void registerReleased(String key) {
+        long size;
+        try {
+            size = storageBackend.load(key).contentLength();
+        } catch (IOException | FileStorageException ex) {
+            // deleted since it was listed
+            return;
+        }
+        attachmentBlobRepository.addReleased(key, size);
+    }
+
+    private boolean deleteFile(String key) {
+        try {
+            return storageBackend.delete(key);
+        } catch (IOException ex) {
+            // the file has no row any more, so the next lap over the storage picks it up again
+            log.warn("Could not delete stored file {}", key, ex);
+            return false;
+        }
+    }
+
+    private String cursor(String name) {
+        return gcCursorRepository.findById(name).map(GcCursor::getPosition).orElse(null);
+    }
+
+    private void saveCursor(String name, String position) {
+        gcCursorRepository.save(new GcCursor(name, position, LocalDateTime.now()));
+    }
+
+    public record SweepResult(int attachments, int blobs, int files, int uploads) {
+
+        int total() {
+            return attachments + blobs + files + uploads;
+        }
+    }
+}
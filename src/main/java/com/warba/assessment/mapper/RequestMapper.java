@@ -1,25 +1,21 @@
 package com.warba.assessment.mapper;
 
 import com.warba.assessment.dto.response.RequestDto;
-import com.warba.assessment.entity.Attachment;
-import com.warba.assessment.entity.Request;
+import com.warba.assessment.repository.projection.RequestRow;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
-import org.mapstruct.Named;
 
 import java.util.List;
 
-@Mapper(uses = UserMapper.class, componentModel = "spring")
+@Mapper(componentModel = "spring")
 public interface RequestMapper {
 
-    @Mapping(source = "attachments", target = "attachmentIds", qualifiedByName = "toIds")
-    @Mapping(source = "status.id", target = "statusId")
-    RequestDto mapRequestToRequestDto(Request request);
-
-    List<RequestDto> mapToRequestDtoList(List<Request> requests);
-
-    @Named("toIds")
-    static Long toId(Attachment a) {
-        return a.getId();
-    }
+    @Mapping(source = "row.ownerId", target = "owner.id")
+    @Mapping(source = "row.ownerName", target = "owner.name")
+    @Mapping(source = "row.ownerCivilId", target = "owner.civilId")
+    @Mapping(source = "row.ownerExpiryDate", target = "owner.expiryDate")
+    @Mapping(source = "row.id", target = "id")
+    @Mapping(source = "row.requestName", target = "requestName")
+    @Mapping(source = "row.statusId", target = "statusId")
+    RequestDto toRequestDto(RequestRow row, List<Long> attachmentIds);
 }
@@ -0,0 +1,60 @@
+package com.warba.assessment.repository;
+
+import com.warba.assessment.entity.AttachmentBlob;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AttachmentBlobRepository extends JpaRepository<AttachmentBlob, String> {
+
+    /**
+     * Registers one more attachment pointing at the blob, creating the row on first use.
+     */
+    @Modifying
+    @Query(value = """
+            MERGE INTO WARBA.ATTACHMENT_BLOBS b USING DUAL ON b.DIGEST = :digest
+            WHEN MATCHED THEN UPDATE SET REF_COUNT = b.REF_COUNT + 1, RELEASED_AT = NULL
+            WHEN NOT MATCHED THEN INSERT (DIGEST, FILE_SIZE, REF_COUNT) VALUES (:digest, :fileSize, 1)
+            """, nativeQuery = true)
+    int addReference(@Param("digest") String digest, @Param("fileSize") long fileSize);
+
+    /**
+     * Hands a stored file no row points at to the blob sweep as a blob released now, unless an
+     * upload has created its row meanwhile.
+     */
+    @Modifying
+    @Query(value = """
+            MERGE INTO WARBA.ATTACHMENT_BLOBS b USING DUAL ON b.DIGEST = :digest
+            WHEN NOT MATCHED THEN INSERT (DIGEST, FILE_SIZE, REF_COUNT, RELEASED_AT) VALUES (:digest, :fileSize, 0, CURRENT_TIMESTAMP)
+            """, nativeQuery = true)
+    int addReleased(@Param("digest") String digest, @Param("fileSize") long fileSize);
+
+    /**
+     * Drops references to the blob, stamping the time the last one went.
+     */
+    @Modifying
+    @Query("""
+            update AttachmentBlob b set b.refCount = b.refCount - :count,
+                b.releasedAt = case when b.refCount = :count then current_timestamp else b.releasedAt end
+            where b.digest = :digest and b.refCount >= :count
+            """)
+    int releaseReferences(@Param("digest") String digest, @Param("count") int count);
+
+    List<AttachmentBlob> findByDigestGreaterThanOrderByDigest(String digest, Limit limit);
+
+    /**
+     * Deletes the blob row if it has had no references since before {@code releasedBefore}. The
+     * condition is checked again once the row is locked, so an upload that took a reference first
+     * keeps the row, and one that comes later waits until this transaction ends.
+     */
+    @Modifying
+    @Query("delete from AttachmentBlob b where b.digest = :digest and b.refCount = 0 and b.releasedAt < :releasedBefore")
+    int deleteReleased(@Param("digest") String digest, @Param("releasedBefore") LocalDateTime releasedBefore);
+}
@@ -1,9 +1,56 @@
 package com.warba.assessment.repository;
 
 import com.warba.assessment.entity.Attachment;
+import com.warba.assessment.repository.projection.AttachmentDownloadView;
+import com.warba.assessment.repository.projection.AttachmentSweepView;
+import com.warba.assessment.repository.projection.RequestAttachmentId;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface AttachmentRepository extends JpaRepository<Attachment, Long> {
+public interface AttachmentRepository extends JpaRepository<Attachment, Long>, AttachmentWriteRepository {
+    Optional<AttachmentDownloadView> findDownloadViewById(Long id);
+
+    // the derived query joined the request and walked the whole primary key
+    @Query("""
+            select a.id as id, a.fileName as fileName, a.originalFileName as originalFileName, a.fileType as fileType,
+                   a.fileSize as fileSize, a.checksum as checksum, a.contentEncoding as contentEncoding
+            from Attachment a where a.request.id = :requestId order by a.id
+            """)
+    List<AttachmentDownloadView> findDownloadViewsByRequestIdOrderById(@Param("requestId") Long requestId);
+
+    @Query("select a.request.id as requestId, a.id as id from Attachment a where a.request.id in :requestIds order by a.id")
+    List<RequestAttachmentId> findIdsByRequestIdIn(@Param("requestIds") Collection<Long> requestIds);
+
+    @Query("""
+            select a.id as id, a.fileName as fileName, a.uploadDateTime as uploadDateTime, a.request.id as requestId
+            from Attachment a where a.id > :after order by a.id
+            """)
+    List<AttachmentSweepView> findSweepViews(@Param("after") Long after, Limit limit);
+
+    @Query("select distinct a.fileName from Attachment a where a.fileName in :fileNames")
+    List<String> findFileNamesIn(@Param("fileNames") Collection<String> fileNames);
+
+    /**
+     * Links the attachments that are not linked yet to the request in one statement; a result
+     * below {@code ids.size()} means some were missing or taken.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Attachment a set a.request.id = :requestId where a.id in :ids and a.request is null")
+    int linkToRequest(@Param("requestId") Long requestId, @Param("ids") Collection<Long> ids);
+
+    /**
+     * Deletes the attachment unless it has been linked to a request in the meantime.
+     */
+    @Modifying
+    @Query("delete from Attachment a where a.id = :id and a.request is null")
+    int deleteOrphan(@Param("id") Long id);
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.warba.assessment.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+public interface AttachmentWriteRepository {
+
+    /**
+     * Links each request's attachments that are not linked yet to it, all in one JDBC batch.
+     * Returns how many each request got; a count below its number of ids means some were missing
+     * or taken.
+     */
+    Map<Long, Integer> linkToRequests(Map<Long, List<Long>> attachmentIdsByRequest);
+
+    /**
+     * Unlinks every attachment of the requests in one statement.
+     */
+    int unlinkFromRequests(Collection<Long> requestIds);
+}
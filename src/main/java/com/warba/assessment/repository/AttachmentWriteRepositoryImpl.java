@@ -0,0 +1,48 @@
+package com.warba.assessment.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RequiredArgsConstructor
+public class AttachmentWriteRepositoryImpl implements AttachmentWriteRepository {
+
+    // like linkToRequest, only takes an attachment nobody has linked since it was read
+    private static final String LINK = "UPDATE WARBA.ATTACHMENTS SET REQUEST_ID = ? WHERE ID = ? AND REQUEST_ID IS NULL";
+
+    private static final String UNLINK = "UPDATE WARBA.ATTACHMENTS SET REQUEST_ID = NULL WHERE REQUEST_ID IN (%s)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Map<Long, Integer> linkToRequests(Map<Long, List<Long>> attachmentIdsByRequest) {
+        List<Object[]> rows = new ArrayList<>();
+        attachmentIdsByRequest.forEach((requestId, attachmentIds) ->
+                attachmentIds.forEach(attachmentId -> rows.add(new Object[]{requestId, attachmentId})));
+        Map<Long, Integer> linked = new HashMap<>();
+        attachmentIdsByRequest.keySet().forEach(requestId -> linked.put(requestId, 0));
+        if (rows.isEmpty()) {
+            return linked;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(LINK, rows);
+        for (int i = 0; i < rows.size(); i++) {
+            linked.merge((Long) rows.get(i)[0], counts[i], Integer::sum);
+        }
+        return linked;
+    }
+
+    @Override
+    public int unlinkFromRequests(Collection<Long> requestIds) {
+        if (requestIds.isEmpty()) {
+            return 0;
+        }
+        return jdbcTemplate.update(UNLINK.formatted(String.join(", ", Collections.nCopies(requestIds.size(), "?"))),
+                requestIds.toArray());
+    }
+}
@@ -0,0 +1,9 @@
+package com.warba.assessment.repository;
+
+import com.warba.assessment.entity.GcCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GcCursorRepository extends JpaRepository<GcCursor, String> {
+}
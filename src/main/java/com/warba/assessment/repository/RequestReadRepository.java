@@ -0,0 +1,17 @@
+package com.warba.assessment.repository;
+
+import com.warba.assessment.entity.Request;
+import com.warba.assessment.repository.projection.RequestRow;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface RequestReadRepository {
+
+    /**
+     * Selects up to {@code limit} requests matching the specification as {@link RequestRow}s,
+     * joined to their owner in the same statement.
+     */
+    List<RequestRow> findRows(Specification<Request> specification, Sort sort, int limit);
+}
@@ -0,0 +1,42 @@
+package com.warba.assessment.repository;
+
+import com.warba.assessment.entity.Request;
+import com.warba.assessment.entity.User;
+import com.warba.assessment.repository.projection.RequestRow;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Root;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.List;
+
+@RequiredArgsConstructor
+public class RequestReadRepositoryImpl implements RequestReadRepository {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<RequestRow> findRows(Specification<Request> specification, Sort sort, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<RequestRow> query = cb.createQuery(RequestRow.class);
+        Root<Request> request = query.from(Request.class);
+        Join<Request, User> owner = request.join("owner");
+        query.select(cb.construct(RequestRow.class,
+                        request.get("id"),
+                        request.get("requestName"),
+                        request.get("status").get("id"),
+                        owner.get("id"),
+                        owner.get("name"),
+                        owner.get("civilId"),
+                        owner.get("expiryDate"),
+                        request.get("createdAt")))
+                .where(specification.toPredicate(request, query, cb))
+                .orderBy(QueryUtils.toOrders(sort, request, cb));
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+}
@@ -2,11 +2,9 @@ package com.warba.assessment.repository;
 
 import com.warba.assessment.entity.Request;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.stereotype.Repository;
 
-import java.util.List;
-
 @Repository
-public interface RequestRepository extends JpaRepository<Request, Long> {
-    List<Request> findByOwnerId(Long userId);
-}
\ No newline at end of file
+public interface RequestRepository extends JpaRepository<Request, Long>, JpaSpecificationExecutor<Request>, RequestReadRepository {
+}
@@ -0,0 +1,50 @@
+package com.warba.assessment.repository;
+
+import com.warba.assessment.entity.Request;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Filters for listing a user's requests newest first. Each filter is only added when it is used,
+ * so the query stays a plain range scan of the {@code (OWNER_ID[, STATUS_ID], CREATED_AT, ID)} indexes.
+ */
+public final class RequestSpecifications {
+
+    public static final Sort NEWEST_FIRST = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    private RequestSpecifications() {
+    }
+
+    public static Specification<Request> hasId(Long id) {
+        return (root, query, cb) -> cb.equal(root.get("id"), id);
+    }
+
+    public static Specification<Request> ownedBy(Long userId) {
+        return (root, query, cb) -> cb.equal(root.get("owner").get("id"), userId);
+    }
+
+    public static Specification<Request> hasStatus(Long statusId) {
+        return (root, query, cb) -> cb.equal(root.get("status").get("id"), statusId);
+    }
+
+    public static Specification<Request> createdFrom(LocalDateTime from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("createdAt"), from);
+    }
+
+    public static Specification<Request> createdBefore(LocalDateTime to) {
+        return (root, query, cb) -> cb.lessThan(root.get("createdAt"), to);
+    }
+
+    /**
+     * Requests that come after {@code (createdAt, id)} in {@link #NEWEST_FIRST} order. The redundant
+     * {@code createdAt <= :createdAt} bound lets the database seek into the index instead of
+     * filtering the rows before the cursor.
+     */
+    public static Specification<Request> after(LocalDateTime createdAt, Long id) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("createdAt"), createdAt),
+                cb.or(cb.lessThan(root.get("createdAt"), createdAt), cb.lessThan(root.get("id"), id)));
+    }
+}
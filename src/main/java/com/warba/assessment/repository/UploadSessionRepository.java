@@ -0,0 +1,14 @@
+package com.warba.assessment.repository;
+
+import com.warba.assessment.entity.UploadSession;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    List<UploadSession> findByCreatedAtBeforeOrderByCreatedAt(LocalDateTime createdAt, Limit limit);
+}
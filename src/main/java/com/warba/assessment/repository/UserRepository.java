@@ -1,14 +1,31 @@
 package com.warba.assessment.repository;
 
 import com.warba.assessment.entity.User;
+import com.warba.assessment.repository.projection.RequestCreationCheck;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Long> {
+public interface UserRepository extends JpaRepository<User, Long>, UserWriteRepository {
     Optional<User> findByCivilId(String civilId);
     boolean existsByIdAndDeletedFalse(Long id);
     Optional<User> findByIdAndDeletedFalse(Long id);
+
+    /**
+     * Checks a new request's owner and attachments in one round trip; empty when the owner does
+     * not exist.
+     */
+    @Query("""
+            select u.expiryDate as ownerExpiryDate,
+                   (select count(a) from Attachment a where a.id in :attachmentIds) as attachmentCount,
+                   (select min(a.id) from Attachment a where a.id in :attachmentIds and a.request is not null) as linkedAttachmentId
+            from User u where u.id = :userId
+            """)
+    Optional<RequestCreationCheck> checkRequestCreation(@Param("userId") Long userId,
+                                                        @Param("attachmentIds") Collection<Long> attachmentIds);
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+package com.warba.assessment.repository;
+
+import com.warba.assessment.entity.User;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface UserWriteRepository {
+
+    /**
+     * Inserts a user, or brings back the deleted user holding the same civil ID, in one statement.
+     * Returns the user's id, or empty when an active user already holds the civil ID.
+     */
+    Optional<Long> insertOrReactivate(String civilId, String name, LocalDate expiryDate);
+
+    /**
+     * Applies {@link #insertOrReactivate} to every user in one statement. The civil IDs must be
+     * distinct. Returns the ids by civil ID; civil IDs held by an active user are missing.
+     */
+    Map<String, Long> insertOrReactivateAll(List<User> users);
+}
@@ -0,0 +1,70 @@
+package com.warba.assessment.repository;
+
+import com.warba.assessment.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+@RequiredArgsConstructor
+public class UserWriteRepositoryImpl implements UserWriteRepository {
+
+    static final int MAX_ATTEMPTS = 3;
+
+    private static final String ROW = "(CAST(? AS VARCHAR(50)), CAST(? AS VARCHAR(255)), CAST(? AS DATE))";
+
+    // an active user matches but is left alone, so no row comes back for a taken civil ID
+    private static final String INSERT_OR_REACTIVATE = """
+            SELECT CIVIL_ID, ID FROM FINAL TABLE (
+                MERGE INTO WARBA.USERS U
+                USING (VALUES %s) S (CIVIL_ID, NAME, EXPIRY_DATE)
+                ON U.CIVIL_ID = S.CIVIL_ID
+                WHEN MATCHED AND U.IS_DELETED THEN
+                    UPDATE SET NAME = S.NAME, EXPIRY_DATE = S.EXPIRY_DATE, IS_DELETED = FALSE
+                WHEN NOT MATCHED THEN
+                    INSERT (NAME, CIVIL_ID, EXPIRY_DATE) VALUES (S.NAME, S.CIVIL_ID, S.EXPIRY_DATE))
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Optional<Long> insertOrReactivate(String civilId, String name, LocalDate expiryDate) {
+        User user = User.builder().civilId(civilId).name(name).expiryDate(expiryDate).build();
+        return Optional.ofNullable(insertOrReactivateAll(List.of(user)).get(civilId));
+    }
+
+    /**
+     * Two transactions inserting the same new civil ID both find no match; the one that loses on
+     * the unique index runs the statement again, which now sees the winner's row.
+     */
+    @Override
+    public Map<String, Long> insertOrReactivateAll(List<User> users) {
+        if (users.isEmpty()) {
+            return Map.of();
+        }
+        String sql = INSERT_OR_REACTIVATE.formatted(String.join(", ", Collections.nCopies(users.size(), ROW)));
+        Object[] parameters = users.stream()
+                .flatMap(user -> Stream.of(user.getCivilId(), user.getName(), user.getExpiryDate()))
+                .toArray();
+        for (int attempt = 1; ; attempt++) {
+            try {
+                Map<String, Long> ids = new HashMap<>();
+                jdbcTemplate.query(sql, row -> {
+                    ids.put(row.getString("CIVIL_ID"), row.getLong("ID"));
+                }, parameters);
+                return ids;
+            } catch (DuplicateKeyException ex) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw ex;
+                }
+            }
+        }
+    }
+}
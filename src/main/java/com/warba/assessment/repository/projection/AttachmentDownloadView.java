@@ -0,0 +1,20 @@
+package com.warba.assessment.repository.projection;
+
+/**
+ * The columns a download needs, read without loading the attachment type or the owning request.
+ */
+public interface AttachmentDownloadView {
+    Long getId();
+
+    String getFileName();
+
+    String getOriginalFileName();
+
+    String getFileType();
+
+    Long getFileSize();
+
+    String getChecksum();
+
+    String getContentEncoding();
+}
@@ -0,0 +1,16 @@
+package com.warba.assessment.repository.projection;
+
+import java.time.LocalDateTime;
+
+/**
+ * The columns the storage garbage collector needs to tell whether an attachment is an orphan.
+ */
+public interface AttachmentSweepView {
+    Long getId();
+
+    String getFileName();
+
+    LocalDateTime getUploadDateTime();
+
+    Long getRequestId();
+}
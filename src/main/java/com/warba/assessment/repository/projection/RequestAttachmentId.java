@@ -0,0 +1,7 @@
+package com.warba.assessment.repository.projection;
+
+public interface RequestAttachmentId {
+    Long getRequestId();
+
+    Long getId();
+}
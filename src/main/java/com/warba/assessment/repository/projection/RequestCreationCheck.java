@@ -0,0 +1,19 @@
+package com.warba.assessment.repository.projection;
+
+import java.time.LocalDate;
+
+/**
+ * What {@code createRequest} validates against the database, read in one statement: the owner's
+ * civil ID expiry, how many of the attachments exist and the first one already linked.
+ */
+public interface RequestCreationCheck {
+    LocalDate getOwnerExpiryDate();
+
+    long getAttachmentCount();
+
+    Long getLinkedAttachmentId();
+
+    default boolean isCivilIdExpired() {
+        return LocalDate.now().isAfter(getOwnerExpiryDate());
+    }
+}
@@ -0,0 +1,18 @@
+package com.warba.assessment.repository.projection;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A request with the owner columns its DTO needs, selected in one statement by a constructor
+ * expression instead of hydrating the request, its owner and its status.
+ */
+public record RequestRow(Long id,
+                         String requestName,
+                         Long statusId,
+                         Long ownerId,
+                         String ownerName,
+                         String ownerCivilId,
+                         LocalDate ownerExpiryDate,
+                         LocalDateTime createdAt) {
+}
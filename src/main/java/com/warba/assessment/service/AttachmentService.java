@@ -1,10 +1,26 @@
 package com.warba.assessment.service;
 
 import com.warba.assessment.entity.Attachment;
+import com.warba.assessment.repository.projection.AttachmentDownloadView;
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.List;
+
 public interface AttachmentService {
     Long saveAttachment(MultipartFile file, String type);
+    List<Long> saveAttachments(List<MultipartFile> files, List<String> types);
+    Long saveAttachment(InputStream content, String fileName, String contentType, String type);
+    Long saveAttachment(Path stagedFile, String fileName, String contentType, String type);
     Attachment getAttachment(Long id);
-    byte[] loadFileAsResource(String fileName);
+    AttachmentDownloadView getDownloadView(Long id);
+    Resource loadFileAsResource(String fileName);
+    Resource loadFileAsResource(Long id, AttachmentDownloadView attachment);
+    void releaseFiles(List<Attachment> attachments);
+    List<AttachmentDownloadView> getRequestAttachments(Long requestId);
+    void writeZip(List<AttachmentDownloadView> attachments, OutputStream out) throws IOException;
 }
\ No newline at end of file
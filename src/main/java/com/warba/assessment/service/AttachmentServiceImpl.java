@@ -1,62 +1,309 @@
 package com.warba.assessment.service;
 
+import com.warba.assessment.cache.AttachmentCache;
+import com.warba.assessment.cache.ReferenceDataRegistry;
+import com.warba.assessment.db.ShardKey;
 import com.warba.assessment.entity.Attachment;
+import com.warba.assessment.entity.AttachmentType;
 import com.warba.assessment.exception.BusinessValidationException;
 import com.warba.assessment.exception.FileStorageException;
 import com.warba.assessment.exception.ResourceNotFoundException;
+import com.warba.assessment.repository.AttachmentBlobRepository;
 import com.warba.assessment.repository.AttachmentRepository;
-import com.warba.assessment.repository.AttachmentTypeRepository;
-import jakarta.annotation.PostConstruct;
+import com.warba.assessment.repository.projection.AttachmentDownloadView;
+import com.warba.assessment.storage.GzipCompressingInputStream;
+import com.warba.assessment.storage.StorageBackend;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 @Service
 @RequiredArgsConstructor
 public class AttachmentServiceImpl implements AttachmentService {
 
-    @Value("${file.storage.location:uploads}")
-    private String fileStorageLocation;
+    private static final String GZIP = "gzip";
+
+    /**
+     * Stores each distinct content once under its SHA-256 digest instead of one file per upload.
+     */
+    @Value("${file.storage.content-addressed:false}")
+    private boolean contentAddressed;
+
+    /**
+     * Gzips uploads at rest, except for content types that are compressed already.
+     */
+    @Value("${file.storage.compression.enabled:false}")
+    private boolean compressionEnabled;
+
+    @Value("${file.storage.compression.skip-types:image/jpeg,image/png,image/gif,image/webp,video/,audio/,application/zip,application/gzip}")
+    private List<String> incompressibleTypes;
+
+    @Value("${file.upload.staging-location:${file.storage.location:uploads}/.staging}")
+    private String stagingLocation;
 
-    private Path fileStoragePath;
     private final AttachmentRepository attachmentRepository;
-    private final AttachmentTypeRepository attachmentTypeRepository;
+    private final ReferenceDataRegistry referenceData;
+    private final AttachmentBlobRepository attachmentBlobRepository;
+    private final StorageBackend storageBackend;
+    @Qualifier("storageWriteExecutor")
+    private final Executor storageWriteExecutor;
+    private final AttachmentCache attachmentCache;
+    private final TransactionTemplate transactionTemplate;
 
-    @PostConstruct
-    public void init() {
-        this.fileStoragePath = Paths.get(fileStorageLocation).toAbsolutePath().normalize();
+    @Override
+    @Transactional
+    public Long saveAttachment(MultipartFile file, String type) {
+        String fileName = StringUtils.cleanPath(file.getOriginalFilename());
 
         try {
-            Files.createDirectories(this.fileStoragePath);
-        } catch (IOException ex) {
-            throw new FileStorageException("Could not create the directory where the uploaded files will be stored.", ex);
+            if (fileName.contains("..")) {
+                throw new FileStorageException("Filename contains invalid path sequence" + fileName);
+            }
+            String contentType = file.getContentType() != null ? file.getContentType() : extractContentType(file.getOriginalFilename());
+            StoredUpload upload = storeFile(file, fileName, contentType);
+            String uniqueFileName = upload.key();
+            StoredFile storedFile = upload.file();
+            return attachmentRepository.save(getAttachment(contentType, type, uniqueFileName, fileName, storedFile)).getId();
+
+        } catch (Exception ex) {
+            throw new FileStorageException("Could not store file " + fileName + ". Please try again!", ex);
+        }
+    }
+
+    /**
+     * Stores several files in one call. The files are written to storage in parallel, the attachment
+     * types come from the reference data and the rows go to the database as one insert batch.
+     */
+    @Override
+    @Transactional
+    public List<Long> saveAttachments(List<MultipartFile> files, List<String> types) {
+        if (files == null || files.isEmpty()) {
+            throw new BusinessValidationException("At least one file is required");
+        }
+        if (types == null || types.size() != 1 && types.size() != files.size()) {
+            throw new BusinessValidationException("Provide one attachment type, or one per file");
+        }
+        List<AttachmentType> attachmentTypes = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            attachmentTypes.add(referenceData.findAttachmentTypeReference(types.get(types.size() == 1 ? 0 : i))
+                    .orElseThrow(() -> new BusinessValidationException("incorrect attachment type")));
         }
 
+        List<String> fileNames = new ArrayList<>(files.size());
+        List<String> contentTypes = new ArrayList<>(files.size());
+        List<CompletableFuture<StoredUpload>> writes = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            MultipartFile file = files.get(i);
+            String fileName = StringUtils.cleanPath(file.getOriginalFilename());
+            if (fileName.contains("..")) {
+                throw new FileStorageException("Filename contains invalid path sequence" + fileName);
+            }
+            fileNames.add(fileName);
+            String contentType = file.getContentType() != null ? file.getContentType() : extractContentType(file.getOriginalFilename());
+            contentTypes.add(contentType);
+            boolean compress = shouldCompress(contentType);
+            writes.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    // blobs are only hashed here and written below, once their reference is taken
+                    return contentAddressed ? hashBlob(file, compress) : storeUnique(file, fileName, compress);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }, storageWriteExecutor));
+        }
+
+        List<StoredUpload> uploads = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            try {
+                uploads.add(writes.get(i).join());
+            } catch (CompletionException ex) {
+                throw new FileStorageException("Could not store file " + fileNames.get(i) + ". Please try again!", ex.getCause());
+            }
+        }
+        if (contentAddressed) {
+            storeBlobs(files, fileNames, uploads);
+        }
+
+        List<Attachment> attachments = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            StoredUpload upload = uploads.get(i);
+            StoredFile storedFile = upload.file();
+            Attachment attachment = newAttachment(contentTypes.get(i), upload.key(), fileNames.get(i), storedFile);
+            attachment.setAttachmentType(attachmentTypes.get(i));
+            attachments.add(attachment);
+        }
+        return attachmentRepository.saveAll(attachments).stream().map(Attachment::getId).toList();
+    }
+
+    /**
+     * Writes one upload to storage, as a shared blob, taking a reference on it, or under a unique name.
+     */
+    private StoredUpload storeFile(MultipartFile file, String fileName, String contentType) throws IOException {
+        boolean compress = shouldCompress(contentType);
+        return contentAddressed ? storeBlob(file, compress) : storeUnique(file, fileName, compress);
     }
 
+    private StoredUpload storeUnique(MultipartFile file, String fileName, boolean compress) throws IOException {
+        String key = uniqueFileName(fileName);
+        try (InputStream in = file.getInputStream()) {
+            return new StoredUpload(key, saveToFileSystem(in, key, compress));
+        }
+    }
+
+    /**
+     * Takes the references of a batch of hashed uploads, in key order so that two batches never
+     * wait on each other's blob rows, then writes the blobs that are not stored yet in parallel.
+     */
+    private void storeBlobs(List<MultipartFile> files, List<String> fileNames, List<StoredUpload> uploads) {
+        List<Integer> byKey = IntStream.range(0, uploads.size()).boxed()
+                .sorted(Comparator.comparing(i -> uploads.get(i).key()))
+                .toList();
+        byKey.forEach(i -> attachmentBlobRepository.addReference(uploads.get(i).key(), uploads.get(i).file().size()));
+
+        Map<String, Integer> missing = new LinkedHashMap<>();
+        for (int i : byKey) {
+            String key = uploads.get(i).key();
+            if (!missing.containsKey(key) && !storageBackend.exists(key)) {
+                missing.put(key, i);
+            }
+        }
+        Map<Integer, CompletableFuture<Void>> writes = new LinkedHashMap<>();
+        missing.forEach((key, i) -> writes.put(i, CompletableFuture.runAsync(() -> {
+            try {
+                writeBlob(files.get(i), uploads.get(i));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }, storageWriteExecutor)));
+        writes.forEach((i, write) -> {
+            try {
+                write.join();
+            } catch (CompletionException ex) {
+                throw new FileStorageException("Could not store file " + fileNames.get(i) + ". Please try again!", ex.getCause());
+            }
+        });
+    }
+
+    /**
+     * Registers a fully received staging file as an attachment. The file is moved into the
+     * storage rather than copied; it is only read once to compute its checksum.
+     */
     @Override
     @Transactional
-    public Long saveAttachment(MultipartFile file, String type) {
-        String fileName = StringUtils.cleanPath(file.getOriginalFilename());
+    public Long saveAttachment(Path stagedFile, String fileName, String contentType, String type) {
+        try {
+            StoredFile storedFile = checksum(stagedFile);
+            String uniqueFileName;
+            if (contentAddressed) {
+                uniqueFileName = adoptBlob(stagedFile, storedFile);
+            } else {
+                uniqueFileName = uniqueFileName(fileName);
+                storageBackend.adopt(uniqueFileName, stagedFile);
+            }
+            String resolvedContentType = contentType != null ? contentType : extractContentType(fileName);
+            return attachmentRepository.save(getAttachment(resolvedContentType, type, uniqueFileName, fileName, storedFile)).getId();
+
+        } catch (Exception ex) {
+            throw new FileStorageException("Could not store file " + fileName + ". Please try again!", ex);
+        }
+    }
+
+    /**
+     * Stores a file read from a streamed multipart body. The content is written once, while its size
+     * and checksum are computed on the way, and outside any transaction, since reading the body
+     * takes as long as the client takes to send it; the row is inserted afterwards in a short
+     * transaction. Content-addressed blobs go to a staging file on the same disk first and are
+     * renamed into place once the digest is known.
+     * <p>
+     * When the row cannot be saved, a file stored under a unique name is deleted again. A blob is
+     * left for the storage sweeper instead: once the reference is rolled back, another upload of the
+     * same content may already rely on the file.
+     */
+    @Override
+    public Long saveAttachment(InputStream content, String originalFileName, String contentType, String type) {
+        String fileName = StringUtils.cleanPath(originalFileName);
 
         try {
             if (fileName.contains("..")) {
                 throw new FileStorageException("Filename contains invalid path sequence" + fileName);
             }
-            String uniqueFileName = UUID.randomUUID() + "_" + fileName;
-            saveToFileSystem(file, uniqueFileName);
-            Attachment attachment = getAttachment(file, type, uniqueFileName);
-            return attachmentRepository.save(attachment).getId();
+            String resolvedContentType = contentType != null ? contentType : extractContentType(fileName);
+            boolean compress = shouldCompress(resolvedContentType);
+            if (contentAddressed) {
+                Path stagingDirectory = Files.createDirectories(Paths.get(stagingLocation).toAbsolutePath().normalize());
+                Path stagedFile = Files.createTempFile(stagingDirectory, "stream-", ".tmp");
+                try {
+                    StoredFile storedFile;
+                    MessageDigest digest = newDigest();
+                    try (InputStream in = new DigestInputStream(content, digest)) {
+                        long size = write(in, compress, encoded -> Files.copy(encoded, stagedFile, StandardCopyOption.REPLACE_EXISTING));
+                        storedFile = new StoredFile(size, HexFormat.of().formatHex(digest.digest()), compress ? GZIP : null);
+                    }
+                    return transactionTemplate.execute(status -> {
+                        try {
+                            String key = adoptBlob(stagedFile, storedFile);
+                            return attachmentRepository.save(getAttachment(resolvedContentType, type, key, fileName, storedFile)).getId();
+                        } catch (IOException ex) {
+                            throw new UncheckedIOException(ex);
+                        }
+                    });
+                } finally {
+                    Files.deleteIfExists(stagedFile);
+                }
+            }
+            String uniqueFileName = uniqueFileName(fileName);
+            StoredFile storedFile = saveToFileSystem(content, uniqueFileName, compress);
+            try {
+                return transactionTemplate.execute(status ->
+                        attachmentRepository.save(getAttachment(resolvedContentType, type, uniqueFileName, fileName, storedFile)).getId());
+            } catch (RuntimeException ex) {
+                try {
+                    storageBackend.delete(uniqueFileName);
+                } catch (IOException deleteFailure) {
+                    ex.addSuppressed(deleteFailure);
+                }
+                throw ex;
+            }
 
         } catch (Exception ex) {
             throw new FileStorageException("Could not store file " + fileName + ". Please try again!", ex);
@@ -64,51 +311,299 @@ public class AttachmentServiceImpl implements AttachmentService {
     }
 
     @Override
-    public Attachment getAttachment(Long id) {
+    public Attachment getAttachment(@ShardKey Long id) {
         return attachmentRepository.findById(id).orElseThrow(
                 () -> new ResourceNotFoundException("attachment not found")
         );
     }
 
-    private Attachment getAttachment(MultipartFile file, String type, String uniqueFileName) {
-        Attachment attachment = new Attachment();
-        attachment.setFileName(uniqueFileName);
-        String contentType = file.getContentType();
-        if (contentType == null) {
-            contentType = extractContentType(file);
+    @Override
+    public AttachmentDownloadView getDownloadView(@ShardKey Long id) {
+        AttachmentCache.Entry cached = attachmentCache.peek(id);
+        if (cached != null) {
+            return cached.attachment();
         }
-        attachment.setFileType(contentType);
-        var attType = attachmentTypeRepository.findByName(type).orElseThrow(
+        return attachmentRepository.findDownloadViewById(id).orElseThrow(
+                () -> new ResourceNotFoundException("attachment not found")
+        );
+    }
+
+    private Attachment getAttachment(String contentType, String type, String uniqueFileName,
+                                     String originalFileName, StoredFile storedFile) {
+        Attachment attachment = newAttachment(contentType, uniqueFileName, originalFileName, storedFile);
+        var attType = referenceData.findAttachmentTypeReference(type).orElseThrow(
                 () -> new BusinessValidationException("incorrect attachment type")
         );
         attachment.setAttachmentType(attType);
         return attachment;
     }
 
-    private void saveToFileSystem(MultipartFile file, String fileName) throws IOException {
-        Path targetLocation = this.fileStoragePath.resolve(fileName);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    private static Attachment newAttachment(String contentType, String uniqueFileName,
+                                            String originalFileName, StoredFile storedFile) {
+        Attachment attachment = new Attachment();
+        attachment.setFileName(uniqueFileName);
+        attachment.setOriginalFileName(originalFileName);
+        attachment.setFileType(contentType);
+        attachment.setFileSize(storedFile.size());
+        attachment.setChecksum(storedFile.checksum());
+        attachment.setContentEncoding(storedFile.contentEncoding());
+        return attachment;
+    }
+
+    private static String uniqueFileName(String fileName) {
+        return UUID.randomUUID() + "_" + StringUtils.getFilename(fileName);
+    }
+
+    private StoredFile saveToFileSystem(InputStream content, String fileName, boolean compress) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(content, digest)) {
+            long size = write(in, compress, encoded -> storageBackend.store(fileName, encoded));
+            return new StoredFile(size, HexFormat.of().formatHex(digest.digest()), compress ? GZIP : null);
+        }
+    }
+
+    /**
+     * Hands the content to {@code writer}, gzipped on the fly when {@code compress} is set, and
+     * returns the uncompressed size.
+     */
+    private static long write(InputStream content, boolean compress, StorageWriter writer) throws IOException {
+        if (!compress) {
+            return writer.write(content);
+        }
+        try (GzipCompressingInputStream gzip = new GzipCompressingInputStream(content)) {
+            writer.write(gzip);
+            return gzip.getUncompressedSize();
+        }
+    }
+
+    private boolean shouldCompress(String contentType) {
+        return compressionEnabled && isCompressible(contentType);
+    }
+
+    private boolean isCompressible(String contentType) {
+        String type = contentType == null ? "" : contentType.toLowerCase(Locale.ROOT);
+        return incompressibleTypes.stream().noneMatch(type::startsWith);
+    }
+
+    private static String blobKey(StoredFile storedFile) {
+        return GZIP.equals(storedFile.contentEncoding()) ? storedFile.checksum() + ".gz" : storedFile.checksum();
     }
 
+    /**
+     * Hashes the upload first and only writes it when no blob with that digest is stored yet,
+     * so a repeated upload costs a read of the multipart data and a reference-count update.
+     * <p>
+     * The reference is taken before looking for the file: from then on the blob row is locked
+     * by this transaction and counted, so the storage sweeper cannot drop the file between the
+     * check and the commit.
+     */
+    private StoredUpload storeBlob(MultipartFile file, boolean compress) throws IOException {
+        StoredUpload upload = hashBlob(file, compress);
+        attachmentBlobRepository.addReference(upload.key(), upload.file().size());
+        if (!storageBackend.exists(upload.key())) {
+            writeBlob(file, upload);
+        }
+        return upload;
+    }
+
+    /**
+     * Gzipped blobs are kept under their own key, since the same content may also be stored
+     * uncompressed from before compression was turned on.
+     */
+    private StoredUpload hashBlob(MultipartFile file, boolean compress) throws IOException {
+        MessageDigest digest = newDigest();
+        long size;
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            size = in.transferTo(OutputStream.nullOutputStream());
+        }
+        StoredFile storedFile = new StoredFile(size, HexFormat.of().formatHex(digest.digest()), compress ? GZIP : null);
+        return new StoredUpload(blobKey(storedFile), storedFile);
+    }
+
+    private void writeBlob(MultipartFile file, StoredUpload upload) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            write(in, GZIP.equals(upload.file().contentEncoding()), encoded -> storageBackend.store(upload.key(), encoded));
+        }
+    }
+
+    /**
+     * Takes a reference on the blob of a complete, already hashed file, then moves the file into
+     * storage, or drops it when that content is stored already. See {@link #storeBlob} for the order.
+     */
+    private String adoptBlob(Path stagedFile, StoredFile storedFile) throws IOException {
+        String key = blobKey(storedFile);
+        attachmentBlobRepository.addReference(key, storedFile.size());
+        if (storageBackend.exists(key)) {
+            Files.delete(stagedFile);
+        } else {
+            storageBackend.adopt(key, stagedFile);
+        }
+        return key;
+    }
+
+    /**
+     * Drops the blob references held by attachments that are being deleted. Blobs whose count
+     * reaches zero, and files stored under a unique name, stay on disk until the storage sweeper
+     * reclaims them.
+     */
     @Override
-    public byte[] loadFileAsResource(String fileName) {
+    public void releaseFiles(List<Attachment> attachments) {
+        if (attachments == null) {
+            return;
+        }
+        attachmentCache.evictOnCommit(attachments.stream()
+                .map(Attachment::getId)
+                .filter(Objects::nonNull)
+                .toList());
+        if (!contentAddressed) {
+            return;
+        }
+        Map<String, Long> references = attachments.stream()
+                .map(Attachment::getFileName)
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        references.forEach((digest, count) -> attachmentBlobRepository.releaseReferences(digest, count.intValue()));
+    }
+
+    private static StoredFile checksum(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(Files.newInputStream(file), digest)) {
+            long size = in.transferTo(OutputStream.nullOutputStream());
+            return new StoredFile(size, HexFormat.of().formatHex(digest.digest()), null);
+        }
+    }
+
+    private static MessageDigest newDigest() {
         try {
-            Path filePath = this.fileStoragePath.resolve(fileName).normalize();
-            if (!Files.exists(filePath)) {
-                throw new FileStorageException("File not found: " + fileName);
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * Returns a resource backed by the storage instead of the file content, so the download is
+     * streamed to the client through a fixed-size buffer and never held on the heap as a whole.
+     */
+    @Override
+    public Resource loadFileAsResource(String fileName) {
+        return storageBackend.load(fileName);
+    }
+
+    /**
+     * Serves the attachment from the download cache, loading small files into it on a miss. The
+     * row was read before the file, so after caching it the row is looked up again: an attachment
+     * deleted in between may have been evicted already and would otherwise stay cached.
+     */
+    @Override
+    public Resource loadFileAsResource(@ShardKey Long id, AttachmentDownloadView attachment) {
+        AttachmentCache.Entry cached = attachmentCache.get(id);
+        if (cached != null) {
+            return cached.resource();
+        }
+        Resource resource = storageBackend.load(attachment.getFileName());
+        try {
+            if (attachmentCache.accepts(resource.contentLength())) {
+                AttachmentCache.Entry entry = attachmentCache.put(id, attachment, resource);
+                if (!attachmentRepository.existsById(id)) {
+                    attachmentCache.evict(id);
+                    throw new ResourceNotFoundException("attachment not found");
+                }
+                return entry.resource();
             }
-            return Files.readAllBytes(filePath);
         } catch (IOException ex) {
-            throw new FileStorageException("Could not load file: " + fileName, ex);
+            throw new FileStorageException("Could not read file " + attachment.getFileName(), ex);
+        }
+        return resource;
+    }
+
+    /**
+     * Returns the attachments to put into the request's ZIP, checking first that every file is still
+     * stored: once the ZIP has started streaming the response is committed and a missing file could
+     * no longer turn it into an error.
+     */
+    @Override
+    public List<AttachmentDownloadView> getRequestAttachments(@ShardKey Long requestId) {
+        List<AttachmentDownloadView> attachments = attachmentRepository.findDownloadViewsByRequestIdOrderById(requestId);
+        for (AttachmentDownloadView attachment : attachments) {
+            if (!storageBackend.exists(attachment.getFileName())) {
+                throw new ResourceNotFoundException("File of attachment " + attachment.getId() + " not found");
+            }
         }
+        return attachments;
     }
 
-    private String extractContentType(MultipartFile file) {
+    /**
+     * Writes the attachments into a ZIP stream one at a time, through a fixed-size buffer. Types
+     * that are compressed already go in as STORED entries, which need their CRC up front, so those
+     * files are read twice instead of being deflated for nothing. A file that goes missing while
+     * the ZIP is being written fails the response before the archive's central directory is
+     * written, so the client is left with an unreadable ZIP rather than one silently missing a file.
+     */
+    @Override
+    public void writeZip(List<AttachmentDownloadView> attachments, OutputStream out) throws IOException {
+        Set<String> entryNames = new HashSet<>();
+        ZipOutputStream zip = new ZipOutputStream(out);
+        for (AttachmentDownloadView attachment : attachments) {
+            Resource resource = storageBackend.load(attachment.getFileName());
+            ZipEntry entry = new ZipEntry(zipEntryName(attachment, entryNames));
+            if (!isCompressible(attachment.getFileType())) {
+                CRC32 crc = new CRC32();
+                long size;
+                try (InputStream in = new CheckedInputStream(decode(resource, attachment), crc)) {
+                    size = in.transferTo(OutputStream.nullOutputStream());
+                }
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(size);
+                entry.setCompressedSize(size);
+                entry.setCrc(crc.getValue());
+            }
+            zip.putNextEntry(entry);
+            try (InputStream in = decode(resource, attachment)) {
+                in.transferTo(zip);
+            }
+            zip.closeEntry();
+        }
+        zip.finish();
+    }
+
+    private static InputStream decode(Resource resource, AttachmentDownloadView attachment) throws IOException {
+        InputStream in = resource.getInputStream();
+        return GZIP.equals(attachment.getContentEncoding()) ? new GZIPInputStream(in) : in;
+    }
+
+    private static String zipEntryName(AttachmentDownloadView attachment, Set<String> entryNames) {
+        String name = StringUtils.getFilename(attachment.getOriginalFileName() != null
+                ? attachment.getOriginalFileName() : attachment.getFileName());
+        String candidate = name;
+        for (int copy = 2; !entryNames.add(candidate); copy++) {
+            String extension = StringUtils.getFilenameExtension(name);
+            candidate = extension == null
+                    ? name + " (" + copy + ")"
+                    : StringUtils.stripFilenameExtension(name) + " (" + copy + ")." + extension;
+        }
+        return candidate;
+    }
+
+    private static String extractContentType(String fileName) {
         try {
-            String fileName = file.getOriginalFilename();
             return fileName != null ? Files.probeContentType(Paths.get(fileName)) : "application/octet-stream";
         } catch (IOException e) {
             return "application/octet-stream"; // Default when MIME type cannot be determined
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A stored file: uncompressed size, checksum of the uncompressed content and the encoding it
+     * is stored with, {@code null} meaning as uploaded.
+     */
+    private record StoredFile(long size, String checksum, String contentEncoding) {
+    }
+
+    private record StoredUpload(String key, StoredFile file) {
+    }
+
+    @FunctionalInterface
+    private interface StorageWriter {
+        long write(InputStream content) throws IOException;
+    }
+}
@@ -0,0 +1,15 @@
+package com.warba.assessment.service;
+
+import com.warba.assessment.dto.request.InitiateUploadDto;
+import com.warba.assessment.dto.response.UploadSessionDto;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+
+public interface ChunkedUploadService {
+    UploadSessionDto initiate(InitiateUploadDto initiateUploadDto);
+    UploadSessionDto getSession(String uploadId);
+    UploadSessionDto appendChunk(String uploadId, long offset, InputStream content);
+    Long complete(String uploadId);
+    int expireSessions(LocalDateTime createdBefore, int limit);
+}
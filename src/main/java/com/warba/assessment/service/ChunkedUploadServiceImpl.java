@@ -0,0 +1,198 @@
+package com.warba.assessment.service;
+
+import com.warba.assessment.cache.ReferenceDataRegistry;
+import com.warba.assessment.db.ShardKey;
+import com.warba.assessment.db.ShardRouter;
+import com.warba.assessment.dto.request.InitiateUploadDto;
+import com.warba.assessment.dto.response.UploadSessionDto;
+import com.warba.assessment.entity.UploadSession;
+import com.warba.assessment.exception.BusinessValidationException;
+import com.warba.assessment.exception.FileStorageException;
+import com.warba.assessment.exception.ResourceNotFoundException;
+import com.warba.assessment.repository.UploadSessionRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Receives large attachments in chunks. Each chunk is written straight from the request body into
+ * the session's staging file at its offset, so a request never holds more than the channel buffer,
+ * and an interrupted upload resumes from the size of the staging file.
+ * <p>
+ * With sharding on, a session and the attachment it completes into live on the shard of the
+ * owner named when it was initiated. The upload id is drawn so that it hashes to that shard, so
+ * every later call is routed there by the id alone.
+ */
+@Service
+@RequiredArgsConstructor
+public class ChunkedUploadServiceImpl implements ChunkedUploadService {
+
+    @Value("${file.upload.staging-location:${file.storage.location:uploads}/.staging}")
+    private String stagingLocation;
+
+    @Value("${file.upload.max-size:1GB}")
+    private DataSize maxSize;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final ReferenceDataRegistry referenceData;
+    private final AttachmentService attachmentService;
+    private final ShardRouter shards;
+
+    @Override
+    @Transactional
+    public UploadSessionDto initiate(@ShardKey("userId") InitiateUploadDto initiateUploadDto) {
+        String fileName = StringUtils.cleanPath(initiateUploadDto.getFileName());
+        if (fileName.contains("..")) {
+            throw new BusinessValidationException("Filename contains invalid path sequence " + fileName);
+        }
+        if (initiateUploadDto.getTotalSize() > maxSize.toBytes()) {
+            throw new BusinessValidationException("File exceeds the maximum upload size of " + maxSize);
+        }
+        referenceData.findAttachmentType(initiateUploadDto.getType()).orElseThrow(
+                () -> new BusinessValidationException("incorrect attachment type")
+        );
+
+        UploadSession session = new UploadSession();
+        session.setId(newUploadId(shards.shardOf(initiateUploadDto.getUserId())));
+        session.setFileName(fileName);
+        session.setFileType(initiateUploadDto.getContentType());
+        session.setAttachmentType(initiateUploadDto.getType());
+        session.setTotalSize(initiateUploadDto.getTotalSize());
+        try {
+            Files.createDirectories(stagingDirectory());
+            Files.createFile(stagingFile(session.getId()));
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not start the upload of " + fileName, ex);
+        }
+        return toDto(uploadSessionRepository.save(session), 0);
+    }
+
+    @Override
+    public UploadSessionDto getSession(@ShardKey String uploadId) {
+        UploadSession session = findSession(uploadId);
+        try {
+            return toDto(session, Files.size(stagingFile(uploadId)));
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not read the upload " + uploadId, ex);
+        }
+    }
+
+    /**
+     * Writes the chunk at {@code offset}, which may not lie beyond the bytes received so far.
+     * Resending part of an already received range is allowed and simply overwrites it.
+     */
+    @Override
+    public UploadSessionDto appendChunk(@ShardKey String uploadId, long offset, InputStream content) {
+        UploadSession session = findSession(uploadId);
+        long totalSize = session.getTotalSize();
+        try (FileChannel channel = FileChannel.open(stagingFile(uploadId), StandardOpenOption.WRITE)) {
+            long received = channel.size();
+            if (offset < 0 || offset > received) {
+                throw new BusinessValidationException("Chunk offset " + offset + " does not match the " + received + " bytes received");
+            }
+            ReadableByteChannel source = Channels.newChannel(content);
+            long position = offset;
+            while (position < totalSize) {
+                long transferred = channel.transferFrom(source, position, totalSize - position);
+                if (transferred == 0) {
+                    break;
+                }
+                position += transferred;
+            }
+            if (position == totalSize && content.read() != -1) {
+                throw new BusinessValidationException("Chunk exceeds the declared total size of " + totalSize + " bytes");
+            }
+            return toDto(session, Math.max(position, received));
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not store chunk of upload " + uploadId + ". Please try again!", ex);
+        }
+    }
+
+    @Override
+    @Transactional
+    public Long complete(@ShardKey String uploadId) {
+        UploadSession session = findSession(uploadId);
+        Path stagingFile = stagingFile(uploadId);
+        try {
+            long received = Files.size(stagingFile);
+            if (received != session.getTotalSize()) {
+                throw new BusinessValidationException("Upload is incomplete: " + received + " of " + session.getTotalSize() + " bytes received");
+            }
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not read the upload " + uploadId, ex);
+        }
+        Long attachmentId = attachmentService.saveAttachment(stagingFile, session.getFileName(),
+                session.getFileType(), session.getAttachmentType());
+        uploadSessionRepository.delete(session);
+        return attachmentId;
+    }
+
+    /**
+     * Drops up to {@code limit} abandoned uploads, oldest first, together with their staging files.
+     */
+    @Override
+    @Transactional
+    public int expireSessions(LocalDateTime createdBefore, int limit) {
+        List<UploadSession> expired = uploadSessionRepository.findByCreatedAtBeforeOrderByCreatedAt(createdBefore, Limit.of(limit));
+        for (UploadSession session : expired) {
+            try {
+                Files.deleteIfExists(stagingFile(session.getId()));
+            } catch (IOException ex) {
+                throw new FileStorageException("Could not delete the upload " + session.getId(), ex);
+            }
+        }
+        uploadSessionRepository.deleteAllInBatch(expired);
+        return expired.size();
+    }
+
+    /**
+     * A random id that hashes to {@code shard}; with n shards one in n does.
+     */
+    private String newUploadId(int shard) {
+        String uploadId;
+        do {
+            uploadId = UUID.randomUUID().toString();
+        } while (shards.shardOf(uploadId) != shard);
+        return uploadId;
+    }
+
+    private UploadSession findSession(String uploadId) {
+        return uploadSessionRepository.findById(uploadId).orElseThrow(
+                () -> new ResourceNotFoundException("upload not found")
+        );
+    }
+
+    private Path stagingDirectory() {
+        return Paths.get(stagingLocation).toAbsolutePath().normalize();
+    }
+
+    private Path stagingFile(String uploadId) {
+        return stagingDirectory().resolve(uploadId);
+    }
+
+    private static UploadSessionDto toDto(UploadSession session, long offset) {
+        return UploadSessionDto.builder()
+                .id(session.getId())
+                .fileName(session.getFileName())
+                .offset(offset)
+                .totalSize(session.getTotalSize())
+                .build();
+    }
+}
@@ -1,13 +1,20 @@
 package com.warba.assessment.service;
 
 import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.dto.request.RequestSearchDto;
+import com.warba.assessment.dto.response.BatchItemResultDto;
 import com.warba.assessment.dto.response.RequestDto;
+import com.warba.assessment.dto.response.RequestPageDto;
+import com.warba.assessment.repository.projection.AttachmentDownloadView;
 
 import java.util.List;
 
 public interface RequestService {
     Long createRequest(CreateRequestDto requestDTO);
+    List<BatchItemResultDto> createRequests(List<CreateRequestDto> requestDTOs);
     RequestDto getRequest(Long id);
     List<RequestDto> getRequestsByUser(Long userId);
+    RequestPageDto getRequestPageByUser(Long userId, RequestSearchDto search);
     void deleteRequest(Long id);
+    List<AttachmentDownloadView> getRequestAttachments(Long id);
 }
\ No newline at end of file
@@ -1,7 +1,13 @@
 package com.warba.assessment.service;
 
+import com.warba.assessment.cache.ReferenceDataRegistry;
+import com.warba.assessment.db.ShardKey;
+import com.warba.assessment.db.ShardRouter;
 import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.dto.request.RequestSearchDto;
+import com.warba.assessment.dto.response.BatchItemResultDto;
 import com.warba.assessment.dto.response.RequestDto;
+import com.warba.assessment.dto.response.RequestPageDto;
 import com.warba.assessment.entity.Attachment;
 import com.warba.assessment.entity.Request;
 import com.warba.assessment.entity.Status;
@@ -12,81 +18,370 @@ import com.warba.assessment.exception.ResourceNotFoundException;
 import com.warba.assessment.mapper.RequestMapper;
 import com.warba.assessment.repository.AttachmentRepository;
 import com.warba.assessment.repository.RequestRepository;
-import com.warba.assessment.repository.StatusRepository;
 import com.warba.assessment.repository.UserRepository;
+import com.warba.assessment.repository.projection.AttachmentDownloadView;
+import com.warba.assessment.repository.projection.RequestAttachmentId;
+import com.warba.assessment.repository.projection.RequestCreationCheck;
+import com.warba.assessment.repository.projection.RequestRow;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.warba.assessment.exception.Messages.REQUEST_NOT_FOUND;
 import static com.warba.assessment.exception.Messages.USER_NOT_FOUND;
+import static com.warba.assessment.repository.RequestSpecifications.NEWEST_FIRST;
+import static com.warba.assessment.repository.RequestSpecifications.after;
+import static com.warba.assessment.repository.RequestSpecifications.createdBefore;
+import static com.warba.assessment.repository.RequestSpecifications.createdFrom;
+import static com.warba.assessment.repository.RequestSpecifications.hasId;
+import static com.warba.assessment.repository.RequestSpecifications.hasStatus;
+import static com.warba.assessment.repository.RequestSpecifications.ownedBy;
 import static com.warba.assessment.exception.suppliers.ResourceNotFoundSupplier.resourceNotFoundSupplier;
 
 @Service
 @RequiredArgsConstructor
 public class RequestServiceImpl implements RequestService {
 
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final String AT_LEAST_TWO_ATTACHMENTS = "At least 2 attachments are required";
+    private static final String LINKED_MEANWHILE = "An attachment was linked to another request meanwhile";
+
     private final RequestRepository requestRepository;
     private final UserRepository userRepository;
-    private final StatusRepository statusRepository;
+    private final ReferenceDataRegistry referenceData;
     private final AttachmentRepository attachmentRepository;
+    private final AttachmentService attachmentService;
     private final RequestMapper requestMapper;
+    private final Validator validator;
+    private final ShardRouter shards;
 
+    /**
+     * Validates the owner and attachments with one query and the status against the reference
+     * data, inserts the request and links the attachments with one {@code UPDATE}. The update only
+     * takes attachments that are still unlinked, so one claimed concurrently since the check rolls
+     * the request back. Runs on the owner's shard, where the attachments must have been stored.
+     */
     @Override
     @Transactional
-    public Long createRequest(CreateRequestDto dto) {
-        User user = userRepository.findById(dto.getUserId())
+    public Long createRequest(@ShardKey("userId") CreateRequestDto dto) {
+        List<Long> attachmentIds = attachmentIdsOf(dto);
+        if (attachmentIds.size() < 2) {
+            throw new BusinessValidationException(AT_LEAST_TWO_ATTACHMENTS);
+        }
+        attachmentIds.forEach(attachmentId -> checkSameShard(dto.getUserId(), attachmentId));
+        RequestCreationCheck check = userRepository.checkRequestCreation(dto.getUserId(), attachmentIds)
                 .orElseThrow(resourceNotFoundSupplier(USER_NOT_FOUND.evaluated(dto.getUserId())));
 
-        if (user.isCivilIdExpired()) {
+        if (check.isCivilIdExpired()) {
             throw new BusinessValidationException(Messages.EXPIRED_CIVIL_ID.value());
         }
-        Status status = statusRepository.findById(dto.getStatusId())
+        Status status = referenceData.findStatusReference(dto.getStatusId())
                 .orElseThrow(resourceNotFoundSupplier(Messages.STATUS_NOT_FOUND.evaluated(dto.getStatusId())));
+        if (check.getAttachmentCount() < 2) {
+            throw new BusinessValidationException(AT_LEAST_TWO_ATTACHMENTS);
+        }
+        if (check.getLinkedAttachmentId() != null) {
+            throw new BusinessValidationException(alreadyLinked(check.getLinkedAttachmentId()));
+        }
+        Request request = requestRepository.save(Request.builder()
+                .requestName(dto.getRequestName())
+                .owner(userRepository.getReferenceById(dto.getUserId()))
+                .status(status)
+                .build());
+        if (attachmentRepository.linkToRequest(request.getId(), attachmentIds) != check.getAttachmentCount()) {
+            throw new BusinessValidationException(LINKED_MEANWHILE);
+        }
+        return request.getId();
+    }
+
+    /**
+     * Creates every valid item and reports the others, in the order given. Items are grouped by
+     * the shard of their owner and each group is created on its shard.
+     */
+    @Override
+    @Transactional
+    public List<BatchItemResultDto> createRequests(List<CreateRequestDto> dtos) {
+        List<BatchItemResultDto> results = new ArrayList<>(dtos.size());
+        for (int index = 0; index < dtos.size(); index++) {
+            results.add(BatchItemResultDto.builder().index(index).build());
+        }
+        shards.onEachShard(results, result -> shards.shardOf(dtos.get(result.getIndex()).getUserId()),
+                shardResults -> createRequests(dtos, shardResults));
+        return results;
+    }
+
+    /**
+     * Creates the items of one shard. Their users and attachments are read with one {@code IN}
+     * query each and statuses come from the reference data; the requests then take pooled ids and
+     * are inserted in a JDBC batch, and their attachments are linked with one batch of updates that
+     * only take attachments that are still unlinked. An item that gets fewer attachments than it
+     * names lost one to a concurrent request since they were read: it is reported, its request is
+     * deleted and the attachments it did get are unlinked again.
+     */
+    private int createRequests(List<CreateRequestDto> dtos, Collection<BatchItemResultDto> results) {
+        Map<Long, User> users = findAllById(userRepository::findAllById, User::getId,
+                results.stream().map(result -> dtos.get(result.getIndex()).getUserId()));
+        Map<Long, Attachment> attachments = findAllById(attachmentRepository::findAllById, Attachment::getId,
+                results.stream().map(result -> attachmentIdsOf(dtos.get(result.getIndex()))).flatMap(List::stream));
+
+        List<BatchItemResultDto> createdResults = new ArrayList<>();
+        List<Request> requests = new ArrayList<>();
+        Set<Long> linked = new HashSet<>();
+        for (BatchItemResultDto result : results) {
+            CreateRequestDto dto = dtos.get(result.getIndex());
+            try {
+                validate(dto, users, attachments, linked);
+            } catch (BusinessValidationException | ResourceNotFoundException ex) {
+                result.setError(ex.getMessage());
+                continue;
+            }
+            linked.addAll(attachmentIdsOf(dto));
+            createdResults.add(result);
+            Status status = referenceData.findStatusReference(dto.getStatusId()).orElseThrow();
+            requests.add(buildRequest(dto, users.get(dto.getUserId()), status));
+        }
+        if (requests.isEmpty()) {
+            return 0;
+        }
+        requestRepository.saveAll(requests);
+        // the attachments can only point at requests that have been inserted
+        requestRepository.flush();
+
+        Map<Long, List<Long>> attachmentIdsByRequest = new LinkedHashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            attachmentIdsByRequest.put(requests.get(i).getId(), attachmentIdsOf(dtos.get(createdResults.get(i).getIndex())));
+        }
+        Map<Long, Integer> linkedCounts = attachmentRepository.linkToRequests(attachmentIdsByRequest);
+        List<Request> conflicting = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            Request request = requests.get(i);
+            if (linkedCounts.get(request.getId()) == attachmentIdsByRequest.get(request.getId()).size()) {
+                createdResults.get(i).setRequestId(request.getId());
+            } else {
+                createdResults.get(i).setError(LINKED_MEANWHILE);
+                conflicting.add(request);
+            }
+        }
+        if (!conflicting.isEmpty()) {
+            attachmentRepository.unlinkFromRequests(conflicting.stream().map(Request::getId).toList());
+            requestRepository.deleteAll(conflicting);
+        }
+        return requests.size() - conflicting.size();
+    }
+
+    /**
+     * Checks one item of a batch by the rules of {@link #createRequest}, against the users and
+     * attachments read for the whole batch. That read takes no locks, so an attachment found free
+     * here may still be taken before it is linked; the link settles it. Attachments claimed by an
+     * earlier item of the same batch count as taken.
+     */
+    private void validate(CreateRequestDto dto,
+                          Map<Long, User> users,
+                          Map<Long, Attachment> attachments,
+                          Set<Long> linked) {
+        Set<ConstraintViolation<CreateRequestDto>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            throw new BusinessValidationException(violations.iterator().next().getMessage());
+        }
+        User user = users.get(dto.getUserId());
+        if (user == null) {
+            throw new ResourceNotFoundException(USER_NOT_FOUND.evaluated(dto.getUserId()));
+        }
+        if (user.isCivilIdExpired()) {
+            throw new BusinessValidationException(Messages.EXPIRED_CIVIL_ID.value());
+        }
+        if (referenceData.findStatus(dto.getStatusId()).isEmpty()) {
+            throw new ResourceNotFoundException(Messages.STATUS_NOT_FOUND.evaluated(dto.getStatusId()));
+        }
+        List<Long> attachmentIds = attachmentIdsOf(dto);
+        if (attachmentIds.size() < 2) {
+            throw new BusinessValidationException(AT_LEAST_TWO_ATTACHMENTS);
+        }
+        for (Long attachmentId : attachmentIds) {
+            checkSameShard(dto.getUserId(), attachmentId);
+            Attachment attachment = attachments.get(attachmentId);
+            if (attachment == null) {
+                throw new ResourceNotFoundException("Attachment not found with ID: " + attachmentId);
+            }
+            if (attachment.getRequest() != null || linked.contains(attachmentId)) {
+                throw new BusinessValidationException(alreadyLinked(attachmentId));
+            }
+        }
+    }
 
-        List<Attachment> attachments = attachmentRepository
-                .findAllById(dto.getAttachmentIds());
-        if (attachments.size() < 2) {
-            throw new BusinessValidationException("At least 2 attachments are required. Only ");
+    /**
+     * A request and its attachments are kept on the owner's shard; an attachment uploaded for an
+     * owner on another shard cannot be linked.
+     */
+    private void checkSameShard(Long userId, Long attachmentId) {
+        if (shards.shardOf(attachmentId) != shards.shardOf(userId)) {
+            throw new BusinessValidationException("Attachment " + attachmentId + " is stored on another shard than user " + userId);
         }
-        Request request = buildRequest(dto, user, status, attachments);
-        return requestRepository.save(request).getId();
     }
 
-    private static Request buildRequest(CreateRequestDto dto,
-                                        User user,
-                                        Status status,
-                                        List<Attachment> attachments) {
+    private static String alreadyLinked(Long attachmentId) {
+        return "Attachment " + attachmentId + " already belongs to a request";
+    }
+
+    private static List<Long> attachmentIdsOf(CreateRequestDto dto) {
+        return dto.getAttachmentIds() == null ? List.of()
+                : dto.getAttachmentIds().stream().filter(Objects::nonNull).distinct().toList();
+    }
+
+    private static <T> Map<Long, T> findAllById(Function<Collection<Long>, List<T>> finder,
+                                                Function<T, Long> idOf,
+                                                Stream<Long> ids) {
+        Set<Long> distinctIds = ids.filter(Objects::nonNull).collect(Collectors.toSet());
+        if (distinctIds.isEmpty()) {
+            return Map.of();
+        }
+        return finder.apply(distinctIds).stream().collect(Collectors.toMap(idOf, Function.identity()));
+    }
+
+    private static Request buildRequest(CreateRequestDto dto, User user, Status status) {
         return Request.builder()
                 .requestName(dto.getRequestName())
                 .owner(user)
                 .status(status)
-                .attachments(attachments).build();
+                .build();
     }
 
     @Override
-    public RequestDto getRequest(Long id) {
-        Request req = requestRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException(REQUEST_NOT_FOUND.evaluated(id)));
-        return requestMapper.mapRequestToRequestDto(req);
+    @Transactional(readOnly = true)
+    public RequestDto getRequest(@ShardKey Long id) {
+        List<RequestRow> rows = requestRepository.findRows(hasId(id), Sort.unsorted(), 1);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException(REQUEST_NOT_FOUND.evaluated(id));
+        }
+        return toRequestDtos(rows).get(0);
     }
 
+    /**
+     * Returns all of the user's requests, newest first, with the same two statements as a page.
+     */
     @Override
-    public List<RequestDto> getRequestsByUser(Long userId) {
+    @Transactional(readOnly = true)
+    public List<RequestDto> getRequestsByUser(@ShardKey Long userId) {
         if (!userRepository.existsByIdAndDeletedFalse(userId)) {
             throw resourceNotFoundSupplier(USER_NOT_FOUND.evaluated(userId)).get();
         }
+        return toRequestDtos(requestRepository.findRows(ownedBy(userId), NEWEST_FIRST, Integer.MAX_VALUE));
+    }
 
-        return requestMapper.mapToRequestDtoList(requestRepository.findByOwnerId(userId));
+    /**
+     * Returns one page of the user's requests, newest first. Pages are keyed on the
+     * {@code (createdAt, id)} of the last request returned rather than on an offset, so every
+     * page is a seek into the owner index followed by {@code limit} rows, however deep it is.
+     * A page costs two statements: the rows joined to their owner, and their attachment ids, both
+     * on the owner's shard.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public RequestPageDto getRequestPageByUser(@ShardKey Long userId, RequestSearchDto search) {
+        if (!userRepository.existsByIdAndDeletedFalse(userId)) {
+            throw resourceNotFoundSupplier(USER_NOT_FOUND.evaluated(userId)).get();
+        }
+        int limit = search.getLimit() != null ? search.getLimit() : DEFAULT_PAGE_SIZE;
+
+        Specification<Request> specification = ownedBy(userId);
+        if (search.getStatusId() != null) {
+            specification = specification.and(hasStatus(search.getStatusId()));
+        }
+        if (search.getFrom() != null) {
+            specification = specification.and(createdFrom(search.getFrom()));
+        }
+        if (search.getTo() != null) {
+            specification = specification.and(createdBefore(search.getTo()));
+        }
+        if (search.getCursor() != null) {
+            Cursor cursor = Cursor.decode(search.getCursor());
+            specification = specification.and(after(cursor.createdAt(), cursor.id()));
+        }
+        // one extra row tells whether there is a next page
+        List<RequestRow> rows = requestRepository.findRows(specification, NEWEST_FIRST, limit + 1);
+
+        String nextCursor = null;
+        if (rows.size() > limit) {
+            rows = rows.subList(0, limit);
+            RequestRow last = rows.get(limit - 1);
+            nextCursor = new Cursor(last.createdAt(), last.id()).encode();
+        }
+        return RequestPageDto.builder()
+                .requests(toRequestDtos(rows))
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    /**
+     * Adds the attachment ids of all rows with a single {@code IN} query.
+     */
+    private List<RequestDto> toRequestDtos(List<RequestRow> rows) {
+        if (rows.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, List<Long>> attachmentIds = attachmentRepository
+                .findIdsByRequestIdIn(rows.stream().map(RequestRow::id).toList()).stream()
+                .collect(Collectors.groupingBy(RequestAttachmentId::getRequestId,
+                        Collectors.mapping(RequestAttachmentId::getId, Collectors.toList())));
+        return rows.stream()
+                .map(row -> requestMapper.toRequestDto(row, attachmentIds.getOrDefault(row.id(), List.of())))
+                .toList();
     }
 
     @Override
     @Transactional
-    public void deleteRequest(Long id) {
+    public void deleteRequest(@ShardKey Long id) {
         Request request = requestRepository.findById(id)
                 .orElseThrow(resourceNotFoundSupplier(REQUEST_NOT_FOUND.evaluated(id)));
+        attachmentService.releaseFiles(request.getAttachments());
         requestRepository.delete(request);
     }
+
+    @Override
+    public List<AttachmentDownloadView> getRequestAttachments(@ShardKey Long id) {
+        if (!requestRepository.existsById(id)) {
+            throw resourceNotFoundSupplier(REQUEST_NOT_FOUND.evaluated(id)).get();
+        }
+        return attachmentService.getRequestAttachments(id);
+    }
+
+    /**
+     * Position of the last request on a page, handed to clients as an opaque token.
+     */
+    private record Cursor(LocalDateTime createdAt, Long id) {
+
+        String encode() {
+            String position = createdAt + "," + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(position.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String token) {
+            try {
+                String[] position = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(",", 2);
+                return new Cursor(LocalDateTime.parse(position[0]), Long.valueOf(position[1]));
+            } catch (IllegalArgumentException | DateTimeParseException | ArrayIndexOutOfBoundsException ex) {
+                throw new BusinessValidationException("Invalid cursor");
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.warba.assessment.service;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+public interface StreamingUploadService {
+    Long upload(HttpServletRequest request);
+}
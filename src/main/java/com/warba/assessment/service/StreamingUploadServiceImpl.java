@@ -0,0 +1,85 @@
+package com.warba.assessment.service;
+
+import com.warba.assessment.exception.BusinessValidationException;
+import com.warba.assessment.exception.FileStorageException;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadSizeException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses a multipart upload while it is being received instead of letting the servlet container
+ * spool it to a temp file first. The {@code type} field has to come before the file part, which
+ * is then streamed into storage as it is read.
+ */
+@Service
+@RequiredArgsConstructor
+public class StreamingUploadServiceImpl implements StreamingUploadService {
+
+    private static final String TYPE_FIELD = "type";
+    private static final String FILE_FIELD = "file";
+
+    @Value("${file.upload.max-size:1GB}")
+    private DataSize maxSize;
+
+    private final AttachmentService attachmentService;
+
+    @Override
+    public Long upload(HttpServletRequest request) {
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            throw new BusinessValidationException("multipart/form-data request expected");
+        }
+        JakartaServletFileUpload<?, ?> upload = new JakartaServletFileUpload<>();
+        upload.setFileSizeMax(maxSize.toBytes());
+
+        String type = null;
+        Long attachmentId = null;
+        try {
+            FileItemInputIterator items = upload.getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemInput item = items.next();
+                if (item.isFormField() && TYPE_FIELD.equals(item.getFieldName())) {
+                    try (InputStream in = item.getInputStream()) {
+                        type = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+                    }
+                } else if (!item.isFormField() && FILE_FIELD.equals(item.getFieldName())) {
+                    if (type == null) {
+                        throw new BusinessValidationException("The type field must precede the file part");
+                    }
+                    if (attachmentId != null) {
+                        throw new BusinessValidationException("Only one file part is accepted");
+                    }
+                    try (InputStream in = item.getInputStream()) {
+                        attachmentId = attachmentService.saveAttachment(in, item.getName(), item.getContentType(), type);
+                    }
+                }
+            }
+        } catch (FileUploadSizeException ex) {
+            throw tooLarge();
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not read the upload. Please try again!", ex);
+        } catch (FileStorageException ex) {
+            if (ex.getCause() instanceof FileUploadSizeException) {
+                throw tooLarge();
+            }
+            throw ex;
+        }
+        if (attachmentId == null) {
+            throw new BusinessValidationException("file part is required");
+        }
+        return attachmentId;
+    }
+
+    private BusinessValidationException tooLarge() {
+        return new BusinessValidationException("File exceeds the maximum upload size of " + maxSize);
+    }
+}
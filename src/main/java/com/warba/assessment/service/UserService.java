@@ -2,13 +2,20 @@ package com.warba.assessment.service;
 
 import com.warba.assessment.dto.request.CreateUserDto;
 import com.warba.assessment.dto.request.UpdateUserDto;
+import com.warba.assessment.dto.response.BatchUserResultDto;
 import com.warba.assessment.dto.response.UserDto;
 
+import java.util.List;
+
 public interface UserService {
     UserDto getUserById(Long id);
 
+    List<UserDto> getUsersByIds(List<Long> ids);
+
     Long createUser(CreateUserDto dto);
 
+    List<BatchUserResultDto> createUsers(List<CreateUserDto> dtos);
+
     Boolean updateUser(Long id, UpdateUserDto dto);
 
     void deleteUser(Long id);
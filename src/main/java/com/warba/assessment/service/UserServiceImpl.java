@@ -1,18 +1,37 @@
 package com.warba.assessment.service;
 
+import com.warba.assessment.db.ShardKey;
+import com.warba.assessment.db.ShardRouter;
 import com.warba.assessment.dto.request.CreateUserDto;
 import com.warba.assessment.dto.request.UpdateUserDto;
+import com.warba.assessment.dto.response.BatchUserResultDto;
 import com.warba.assessment.dto.response.UserDto;
 import com.warba.assessment.entity.User;
 import com.warba.assessment.exception.BusinessValidationException;
 import com.warba.assessment.mapper.UserMapper;
 import com.warba.assessment.repository.UserRepository;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import static com.warba.assessment.cache.CacheConfiguration.USERS;
 import static com.warba.assessment.exception.Messages.USER_NOT_FOUND;
 import static com.warba.assessment.exception.suppliers.ResourceNotFoundSupplier.resourceNotFoundSupplier;
 
@@ -20,45 +39,107 @@ import static com.warba.assessment.exception.suppliers.ResourceNotFoundSupplier.
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    static final int MAX_IDS = 1000;
+    static final String CIVIL_ID_EXISTS = "Civil ID already exists";
+
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final Validator validator;
+    private final CacheManager cacheManager;
+    private final ShardRouter shards;
 
     @Override
-    public UserDto getUserById(Long id) {
+    @Transactional(readOnly = true)
+    @Cacheable(cacheNames = USERS, key = "#id")
+    public UserDto getUserById(@ShardKey Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(resourceNotFoundSupplier(USER_NOT_FOUND.evaluated(id)));
         return userMapper.convertToDTO(user);
     }
 
+    /**
+     * Loads the users in one query per shard and returns them in the order asked for; unknown ids
+     * are skipped.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserDto> getUsersByIds(List<Long> ids) {
+        Set<Long> distinctIds = ids.stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedHashSet::new));
+        if (distinctIds.size() > MAX_IDS) {
+            throw new BusinessValidationException("At most " + MAX_IDS + " users can be fetched at once");
+        }
+        if (distinctIds.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, User> users = shards.onEachShard(distinctIds, shards::shardOf, userRepository::findAllById).stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return distinctIds.stream()
+                .map(users::get)
+                .filter(Objects::nonNull)
+                .map(userMapper::convertToDTO)
+                .toList();
+    }
+
+    /**
+     * Creates the user, or brings back a deleted user with the same civil ID, in a single upsert
+     * so that concurrent requests for one civil ID cannot both pass a separate existence check.
+     * Evicts the returned id, which matters when a deleted user is brought back.
+     */
+    @Override
+    @Transactional
+    @CacheEvict(cacheNames = USERS, key = "#result")
+    public Long createUser(@ShardKey("civilId") CreateUserDto dto) {
+        return userRepository.insertOrReactivate(dto.getCivilId(), dto.getName(), dto.getExpiryDate())
+                .orElseThrow(() -> new BusinessValidationException(CIVIL_ID_EXISTS));
+    }
+
+    /**
+     * Creates or reactivates every valid user with one upsert per shard. A civil ID repeated within the batch
+     * is created for its first occurrence and reported as taken for the others. Reactivated users
+     * are evicted from the cache.
+     */
     @Override
     @Transactional
-    public Long createUser(CreateUserDto dto) {
-        Optional<User> userOp = userRepository.findByCivilId(dto.getCivilId());
-        User user;
-        if (userOp.isPresent()) {
-            user = userOp.get();
-            if (Boolean.TRUE.equals(user.getDeleted())) {
-                returnExistingDeletedUserToSystem(dto, user);
-                return userRepository.save(user).getId();
+    public List<BatchUserResultDto> createUsers(List<CreateUserDto> dtos) {
+        List<BatchUserResultDto> results = new ArrayList<>(dtos.size());
+        Map<String, BatchUserResultDto> resultsByCivilId = new LinkedHashMap<>();
+        List<User> users = new ArrayList<>();
+        for (int index = 0; index < dtos.size(); index++) {
+            CreateUserDto dto = dtos.get(index);
+            BatchUserResultDto result = BatchUserResultDto.builder().index(index).build();
+            results.add(result);
+            Set<ConstraintViolation<CreateUserDto>> violations = validator.validate(dto);
+            if (!violations.isEmpty()) {
+                result.setError(violations.iterator().next().getMessage());
+            } else if (resultsByCivilId.putIfAbsent(dto.getCivilId(), result) != null) {
+                result.setError(CIVIL_ID_EXISTS);
             } else {
-                throw new BusinessValidationException("Civil ID already exists");
+                users.add(userMapper.toEntity(dto));
             }
-        } else {
-            user = userMapper.toEntity(dto);
-            return userRepository.save(user).getId();
         }
 
-    }
-
-    private static void returnExistingDeletedUserToSystem(CreateUserDto dto, User user) {
-        user.setDeleted(false);
-        user.setName(dto.getName());
-        user.setExpiryDate(dto.getExpiryDate());
+        Map<String, Long> ids = new HashMap<>();
+        shards.onEachShard(users, user -> shards.shardOf(user.getCivilId()),
+                        shardUsers -> userRepository.insertOrReactivateAll(List.copyOf(shardUsers)))
+                .forEach(ids::putAll);
+        Cache cache = cacheManager.getCache(USERS);
+        resultsByCivilId.forEach((civilId, result) -> {
+            Long id = ids.get(civilId);
+            if (id == null) {
+                result.setError(CIVIL_ID_EXISTS);
+            } else {
+                result.setUserId(id);
+                cache.evict(id);
+            }
+        });
+        return results;
     }
 
     @Override
     @Transactional
-    public Boolean updateUser(Long id, UpdateUserDto dto) {
+    @CacheEvict(cacheNames = USERS, key = "#id")
+    public Boolean updateUser(@ShardKey Long id, UpdateUserDto dto) {
         User existingUser = userRepository.findByIdAndDeletedFalse(id)
                 .orElseThrow(resourceNotFoundSupplier(USER_NOT_FOUND.evaluated(id)));
 
@@ -71,7 +152,8 @@ public class UserServiceImpl implements UserService {
 
     @Override
     @Transactional
-    public void deleteUser(Long id) {
+    @CacheEvict(cacheNames = USERS, key = "#id")
+    public void deleteUser(@ShardKey Long id) {
         User existingUser = userRepository.findByIdAndDeletedFalse(id)
                 .orElseThrow(resourceNotFoundSupplier(USER_NOT_FOUND.evaluated(id)));
 
@@ -0,0 +1,250 @@
+package com.warba.assessment.storage;
+
+import com.warba.assessment.exception.FileStorageException;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Stores each key under a few levels of hash-named directories ({@code ab/cd/key} for two levels
+ * of width two), so no directory grows beyond a few thousand entries.
+ * <p>
+ * Files left at the top level by the old flat layout stay readable until
+ * {@link StorageReshardingMigrator} has moved them into their shard.
+ */
+public class FileSystemStorageBackend implements StorageBackend {
+
+    static final String TEMP_DIRECTORY = ".tmp";
+
+    private final Path root;
+    private final int shardLevels;
+    private final int shardWidth;
+    private volatile boolean legacyFilesPresent;
+
+    public FileSystemStorageBackend(String location, int shardLevels, int shardWidth) {
+        if (shardLevels < 0 || shardWidth < 1 || shardLevels * shardWidth > 64) {
+            throw new IllegalArgumentException("Invalid shard layout: " + shardLevels + " levels of width " + shardWidth);
+        }
+        this.root = Paths.get(location).toAbsolutePath().normalize();
+        this.shardLevels = shardLevels;
+        this.shardWidth = shardWidth;
+        try {
+            Files.createDirectories(this.root.resolve(TEMP_DIRECTORY));
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not create the directory where the uploaded files will be stored.", ex);
+        }
+        this.legacyFilesPresent = hasLegacyFiles();
+    }
+
+    @Override
+    public long store(String key, InputStream content) throws IOException {
+        Path target = shardPath(key);
+        Files.createDirectories(target.getParent());
+        Path tempFile = Files.createTempFile(root.resolve(TEMP_DIRECTORY), "upload-", ".tmp");
+        try {
+            long size = Files.copy(content, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+            return size;
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public void adopt(String key, Path source) throws IOException {
+        Path target = shardPath(key);
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            // source is on another file system, fall back to a copy
+            try (InputStream in = Files.newInputStream(source)) {
+                store(key, in);
+            }
+            Files.delete(source);
+        }
+    }
+
+    @Override
+    public Resource load(String key) {
+        Path path = resolveExisting(key);
+        if (path == null) {
+            throw new FileStorageException("File not found: " + key);
+        }
+        return new FileSystemResource(path);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return resolveExisting(key) != null;
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        boolean deleted = Files.deleteIfExists(shardPath(key));
+        if (legacyFilesPresent) {
+            deleted |= Files.deleteIfExists(legacyPath(key));
+        }
+        return deleted;
+    }
+
+    @Override
+    public boolean move(String key, String target) throws IOException {
+        Path source = resolveExisting(key);
+        if (source == null) {
+            return false;
+        }
+        Path destination = shardPath(target);
+        Files.createDirectories(destination.getParent());
+        try {
+            Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (NoSuchFileException ex) {
+            // deleted, or moved from the flat layout into its shard, since it was resolved
+            return move(key, target);
+        }
+    }
+
+    /**
+     * Walks the shard directories in name order, a whole leaf directory at a time. The cursor is
+     * the last leaf directory listed ({@code ab/cd/}); {@link #TEMP_DIRECTORY}, the staging area and
+     * files still in the flat layout are not listed.
+     */
+    @Override
+    public KeyBatch listKeys(String cursor, int limit) throws IOException {
+        List<StoredKey> keys = new ArrayList<>();
+        String last = listShard(root, "", cursor, limit, keys);
+        return new KeyBatch(keys, keys.size() >= limit ? last : null);
+    }
+
+    private String listShard(Path directory, String prefix, String cursor, int limit, List<StoredKey> keys) throws IOException {
+        if (prefix.length() == shardLevels * (shardWidth + 1)) {
+            if (cursor != null && prefix.compareTo(cursor) <= 0) {
+                return null;
+            }
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+                    try {
+                        keys.add(new StoredKey(file.getFileName().toString(), Files.getLastModifiedTime(file).toInstant()));
+                    } catch (NoSuchFileException ex) {
+                        // deleted while listing
+                    }
+                }
+            }
+            return prefix;
+        }
+        List<Path> shards;
+        try (Stream<Path> children = Files.list(directory)) {
+            shards = children
+                    .filter(child -> isShardName(child.getFileName().toString()) && Files.isDirectory(child))
+                    .sorted()
+                    .toList();
+        }
+        String last = null;
+        for (Path shard : shards) {
+            String shardPrefix = prefix + shard.getFileName() + "/";
+            // skip subtrees listed before the cursor; all prefixes on a level have the same width
+            if (cursor == null || cursor.startsWith(shardPrefix) || shardPrefix.compareTo(cursor) > 0) {
+                String listed = listShard(shard, shardPrefix, cursor, limit, keys);
+                last = listed != null ? listed : last;
+                if (keys.size() >= limit) {
+                    break;
+                }
+            }
+        }
+        return last;
+    }
+
+    private boolean isShardName(String name) {
+        return name.length() == shardWidth && name.chars().allMatch(c -> c >= '0' && c <= '9' || c >= 'a' && c <= 'f');
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    Path shardPath(String key) {
+        String hash = HexFormat.of().formatHex(sha256(key));
+        Path directory = root;
+        for (int level = 0; level < shardLevels; level++) {
+            directory = directory.resolve(hash.substring(level * shardWidth, (level + 1) * shardWidth));
+        }
+        return directory.resolve(checkKey(key));
+    }
+
+    Path legacyPath(String key) {
+        return root.resolve(checkKey(key));
+    }
+
+    /**
+     * Lists the files still stored in the flat layout, i.e. regular files directly under the root.
+     */
+    Stream<Path> legacyFiles() throws IOException {
+        return Files.list(root).filter(Files::isRegularFile);
+    }
+
+    void legacyMigrationFinished() {
+        this.legacyFilesPresent = hasLegacyFiles();
+    }
+
+    private Path resolveExisting(String key) {
+        Path sharded = shardPath(key);
+        if (Files.isRegularFile(sharded)) {
+            return sharded;
+        }
+        if (legacyFilesPresent) {
+            Path legacy = legacyPath(key);
+            if (Files.isRegularFile(legacy)) {
+                return legacy;
+            }
+            // it may have been moved into its shard between the two checks
+            if (Files.isRegularFile(sharded)) {
+                return sharded;
+            }
+        }
+        return null;
+    }
+
+    private boolean hasLegacyFiles() {
+        try (Stream<Path> files = legacyFiles()) {
+            // files whose names are not valid keys can never be read, so they do not count
+            return files.anyMatch(file -> isValidKey(file.getFileName().toString()));
+        } catch (IOException ex) {
+            throw new FileStorageException("Could not read the storage directory " + root, ex);
+        }
+    }
+
+    private static boolean isValidKey(String key) {
+        return key != null && !key.isEmpty() && !key.contains("/") && !key.contains("\\") && !key.contains("..");
+    }
+
+    private static String checkKey(String key) {
+        if (!isValidKey(key)) {
+            throw new FileStorageException("File not found: " + key);
+        }
+        return key;
+    }
+
+    private static byte[] sha256(String key) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+}
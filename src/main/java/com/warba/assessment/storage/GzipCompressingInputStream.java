@@ -0,0 +1,88 @@
+package com.warba.assessment.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.Enumeration;
+import java.util.NoSuchElementException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * Gzip-compresses a stream while it is being read, so an upload can be handed to
+ * {@link StorageBackend#store} compressed without being buffered first.
+ */
+public class GzipCompressingInputStream extends InputStream {
+
+    private static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final int TRAILER_SIZE = 8;
+
+    private final CRC32 crc = new CRC32();
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    private final InputStream gzip;
+
+    public GzipCompressingInputStream(InputStream source) {
+        CheckedInputStream checked = new CheckedInputStream(source, crc);
+        this.gzip = new SequenceInputStream(new Enumeration<>() {
+            private int part;
+
+            @Override
+            public boolean hasMoreElements() {
+                return part < 3;
+            }
+
+            @Override
+            public InputStream nextElement() {
+                return switch (part++) {
+                    case 0 -> new ByteArrayInputStream(HEADER);
+                    case 1 -> new DeflaterInputStream(checked, deflater);
+                    // only asked for once the deflated body has been read to the end
+                    case 2 -> new ByteArrayInputStream(trailer());
+                    default -> throw new NoSuchElementException();
+                };
+            }
+        });
+    }
+
+    /**
+     * Number of uncompressed bytes consumed from the source so far.
+     */
+    public long getUncompressedSize() {
+        return deflater.getBytesRead();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return gzip.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return gzip.read(b, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            gzip.close();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private byte[] trailer() {
+        byte[] trailer = new byte[TRAILER_SIZE];
+        writeInt(trailer, 0, crc.getValue());
+        writeInt(trailer, 4, deflater.getBytesRead());
+        return trailer;
+    }
+
+    private static void writeInt(byte[] buffer, int offset, long value) {
+        for (int i = 0; i < 4; i++) {
+            buffer[offset + i] = (byte) (value >>> (8 * i));
+        }
+    }
+}
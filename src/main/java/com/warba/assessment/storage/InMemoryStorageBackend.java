@@ -0,0 +1,85 @@
+package com.warba.assessment.storage;
+
+import com.warba.assessment.exception.FileStorageException;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Keeps content on the heap. Meant for tests and local runs, selected with
+ * {@code file.storage.backend=memory}.
+ */
+public class InMemoryStorageBackend implements StorageBackend {
+
+    private final ConcurrentNavigableMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+
+    @Override
+    public long store(String key, InputStream content) throws IOException {
+        byte[] bytes = content.readAllBytes();
+        objects.put(key, new StoredObject(bytes, Instant.now()));
+        return bytes.length;
+    }
+
+    @Override
+    public void adopt(String key, Path source) throws IOException {
+        objects.put(key, new StoredObject(Files.readAllBytes(source), Instant.now()));
+        Files.delete(source);
+    }
+
+    @Override
+    public Resource load(String key) {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            throw new FileStorageException("File not found: " + key);
+        }
+        return new ByteArrayResource(object.content());
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return objects.containsKey(key);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return objects.remove(key) != null;
+    }
+
+    @Override
+    public boolean move(String key, String target) {
+        StoredObject object = objects.remove(key);
+        if (object == null) {
+            return false;
+        }
+        objects.put(target, object);
+        return true;
+    }
+
+    @Override
+    public KeyBatch listKeys(String cursor, int limit) {
+        Map<String, StoredObject> remaining = cursor == null ? objects : objects.tailMap(cursor, false);
+        List<StoredKey> keys = remaining.entrySet().stream()
+                .limit(limit)
+                .map(entry -> new StoredKey(entry.getKey(), entry.getValue().storedAt()))
+                .toList();
+        String next = keys.size() < limit ? null : keys.get(keys.size() - 1).key();
+        return new KeyBatch(keys, next);
+    }
+
+    public Set<String> keys() {
+        return Set.copyOf(objects.keySet());
+    }
+
+    private record StoredObject(byte[] content, Instant storedAt) {
+    }
+}
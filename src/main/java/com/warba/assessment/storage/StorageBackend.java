@@ -0,0 +1,61 @@
+package com.warba.assessment.storage;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Where attachment content lives. Keys are the values stored in {@code Attachment.fileName}
+ * and must not contain path separators.
+ */
+public interface StorageBackend {
+
+    /**
+     * Stores the content under the key, replacing any previous content. Readers never see a
+     * partially written object.
+     *
+     * @return the number of bytes stored
+     */
+    long store(String key, InputStream content) throws IOException;
+
+    /**
+     * Takes over a complete file, moving it under the key instead of copying it where the
+     * backend allows. The source file no longer exists afterwards.
+     */
+    void adopt(String key, Path source) throws IOException;
+
+    /**
+     * @throws com.warba.assessment.exception.FileStorageException when nothing is stored under the key
+     */
+    Resource load(String key);
+
+    boolean exists(String key);
+
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Moves the content stored under {@code key} to {@code target}, replacing what is stored there.
+     *
+     * @return whether anything was stored under the key
+     */
+    boolean move(String key, String target) throws IOException;
+
+    /**
+     * Lists stored keys a page at a time, in a stable order, so the whole store can be walked in
+     * small steps across restarts. Pass the returned cursor to continue; a {@code null} cursor
+     * starts from the beginning and is returned once the end has been reached.
+     *
+     * @param limit the number of keys after which the page ends; a page may overshoot it slightly
+     */
+    KeyBatch listKeys(String cursor, int limit) throws IOException;
+
+    record StoredKey(String key, Instant lastModified) {
+    }
+
+    record KeyBatch(List<StoredKey> keys, String nextCursor) {
+    }
+}
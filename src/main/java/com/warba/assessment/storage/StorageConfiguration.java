@@ -0,0 +1,62 @@
+package com.warba.assessment.storage;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class StorageConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "file.storage.backend", havingValue = "filesystem", matchIfMissing = true)
+    public FileSystemStorageBackend fileSystemStorageBackend(@Value("${file.storage.location:uploads}") String location,
+                                                             @Value("${file.storage.shard-levels:2}") int shardLevels,
+                                                             @Value("${file.storage.shard-width:2}") int shardWidth) {
+        return new FileSystemStorageBackend(location, shardLevels, shardWidth);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "file.storage.backend", havingValue = "memory")
+    public InMemoryStorageBackend inMemoryStorageBackend() {
+        return new InMemoryStorageBackend();
+    }
+
+    /**
+     * Writes the files of a bulk upload concurrently; the pool bounds how many files are written
+     * at once and its queue how many wait. Once the queue is full the uploading request writes the
+     * file itself, which slows that client down instead of piling up work.
+     * <p>
+     * Not a default candidate, so it is only injected where it is asked for by name and Spring
+     * Boot still creates its own {@code applicationTaskExecutor} for async MVC handling.
+     */
+    @Bean(defaultCandidate = false)
+    public ThreadPoolTaskExecutor storageWriteExecutor(@Value("${file.storage.write-threads:4}") int writeThreads,
+                                                       @Value("${file.storage.write-queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(writeThreads);
+        executor.setMaxPoolSize(writeThreads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setThreadNamePrefix("storage-write-");
+        return executor;
+    }
+
+    /**
+     * Reshards files left in the flat layout on a background thread, so startup is not held up.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "file.storage.reshard-on-startup", havingValue = "true")
+    public ApplicationRunner storageReshardingRunner(ObjectProvider<FileSystemStorageBackend> backend) {
+        return args -> backend.ifAvailable(fileSystemBackend -> {
+            Thread thread = new Thread(new StorageReshardingMigrator(fileSystemBackend)::migrate, "storage-reshard");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+}
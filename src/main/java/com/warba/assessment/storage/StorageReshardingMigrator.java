@@ -0,0 +1,64 @@
+package com.warba.assessment.storage;
+
+import com.warba.assessment.exception.FileStorageException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Moves files left in the flat {@code uploads/} layout into their shard directories while the
+ * application keeps serving. Each file is moved with a single rename, and the backend looks in
+ * both places until the migration has finished, so readers never miss a file.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class StorageReshardingMigrator {
+
+    private final FileSystemStorageBackend backend;
+
+    /**
+     * Moves each file on its own: a file that is gone by the time it is moved, or whose name is not a
+     * valid key, is skipped and the migration carries on with the rest.
+     *
+     * @return the number of files moved
+     */
+    public int migrate() {
+        int moved = 0;
+        int skipped = 0;
+        try (Stream<Path> files = backend.legacyFiles()) {
+            Iterator<Path> iterator = files.iterator();
+            while (iterator.hasNext()) {
+                Path source = iterator.next();
+                try {
+                    Path target = backend.shardPath(source.getFileName().toString());
+                    Files.createDirectories(target.getParent());
+                    Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                    moved++;
+                } catch (NoSuchFileException ex) {
+                    // deleted since it was listed
+                    log.debug("Skipping {}, it no longer exists", source);
+                } catch (FileStorageException ex) {
+                    log.warn("Skipping {}, its name is not a valid storage key", source);
+                    skipped++;
+                } catch (IOException ex) {
+                    log.error("Could not move {} into its shard", source, ex);
+                    skipped++;
+                }
+            }
+            backend.legacyMigrationFinished();
+        } catch (IOException | UncheckedIOException | FileStorageException ex) {
+            log.error("Resharding of {} stopped after {} files", backend.getRoot(), moved, ex);
+            return moved;
+        }
+        log.info("Resharding of {} finished, {} files moved, {} skipped", backend.getRoot(), moved, skipped);
+        return moved;
+    }
+}
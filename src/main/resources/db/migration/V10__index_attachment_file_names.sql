@@ -0,0 +1,4 @@
+-- The file sweep looks up which stored files are still referenced by name.
+-- REQUESTS.OWNER_ID, REQUESTS.STATUS_ID and ATTACHMENTS.REQUEST_ID are already indexed by H2
+-- for their foreign keys; QueryPlanRegressionIntegrationTest fails if any lookup stops using an index.
+CREATE INDEX IF NOT EXISTS IDX_ATTACHMENTS_FILE_NAME ON ATTACHMENTS (FILE_NAME);
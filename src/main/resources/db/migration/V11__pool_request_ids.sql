@@ -0,0 +1,2 @@
+-- Let Hibernate reserve 50 request ids per sequence call (allocationSize = 50)
+ALTER SEQUENCE REQUEST_SEQ INCREMENT BY 50;
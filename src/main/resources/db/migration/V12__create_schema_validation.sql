@@ -0,0 +1,6 @@
+-- Fingerprint of the migrations and entity mappings the last successful schema validation ran against
+CREATE TABLE IF NOT EXISTS SCHEMA_VALIDATION (
+    ID INT PRIMARY KEY,
+    FINGERPRINT VARCHAR(64) NOT NULL,
+    VALIDATED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -0,0 +1,3 @@
+-- Size and SHA-256 of the stored file, used for Content-Length and strong ETags on download
+ALTER TABLE ATTACHMENTS ADD COLUMN FILE_SIZE BIGINT;
+ALTER TABLE ATTACHMENTS ADD COLUMN CHECKSUM VARCHAR(64);
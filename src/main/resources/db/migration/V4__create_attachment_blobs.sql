@@ -0,0 +1,10 @@
+-- Content-addressed blobs: one stored file per SHA-256 digest, shared by every attachment with that content
+CREATE TABLE IF NOT EXISTS ATTACHMENT_BLOBS (
+    DIGEST VARCHAR(64) PRIMARY KEY,
+    FILE_SIZE BIGINT NOT NULL,
+    REF_COUNT INT NOT NULL DEFAULT 0,
+    CREATED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- File name as uploaded, since FILE_NAME may now be a digest
+ALTER TABLE ATTACHMENTS ADD COLUMN ORIGINAL_FILE_NAME VARCHAR(255);
@@ -0,0 +1,9 @@
+-- Chunked uploads in progress; the bytes received so far live in a staging file named after the ID
+CREATE TABLE IF NOT EXISTS UPLOAD_SESSIONS (
+    ID VARCHAR(36) PRIMARY KEY,
+    FILE_NAME VARCHAR(255) NOT NULL,
+    FILE_TYPE VARCHAR(100),
+    ATTACHMENT_TYPE VARCHAR(255) NOT NULL,
+    TOTAL_SIZE BIGINT NOT NULL,
+    CREATED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
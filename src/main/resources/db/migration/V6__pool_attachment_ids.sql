@@ -0,0 +1,2 @@
+-- Let Hibernate reserve 50 attachment ids per sequence call (allocationSize = 50)
+ALTER SEQUENCE ATTACHMENT_SEQ INCREMENT BY 50;
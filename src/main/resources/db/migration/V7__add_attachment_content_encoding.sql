@@ -0,0 +1,5 @@
+-- Encoding the file is stored with (e.g. gzip); NULL means it is stored as uploaded
+ALTER TABLE ATTACHMENTS ADD COLUMN CONTENT_ENCODING VARCHAR(20);
+
+-- Gzipped blobs are keyed by their digest plus a ".gz" suffix
+ALTER TABLE ATTACHMENT_BLOBS ALTER COLUMN DIGEST SET DATA TYPE VARCHAR(80);
@@ -0,0 +1,12 @@
+-- Where each incremental sweep of the storage garbage collector stopped; NULL starts a new lap
+CREATE TABLE IF NOT EXISTS GC_CURSORS (
+    NAME VARCHAR(50) PRIMARY KEY,
+    POSITION VARCHAR(1024),
+    UPDATED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- When a blob's reference count dropped to zero; it is deleted after a grace period
+ALTER TABLE ATTACHMENT_BLOBS ADD COLUMN RELEASED_AT TIMESTAMP;
+UPDATE ATTACHMENT_BLOBS SET RELEASED_AT = CURRENT_TIMESTAMP WHERE REF_COUNT = 0;
+
+CREATE INDEX IF NOT EXISTS IDX_UPLOAD_SESSIONS_CREATED_AT ON UPLOAD_SESSIONS (CREATED_AT);
@@ -0,0 +1,3 @@
+-- Keyset pagination of a user's requests, newest first, optionally narrowed to one status
+CREATE INDEX IF NOT EXISTS IDX_REQUESTS_OWNER_CREATED ON REQUESTS (OWNER_ID, CREATED_AT DESC, ID DESC);
+CREATE INDEX IF NOT EXISTS IDX_REQUESTS_OWNER_STATUS_CREATED ON REQUESTS (OWNER_ID, STATUS_ID, CREATED_AT DESC, ID DESC);
@@ -0,0 +1,98 @@
+package com.warba.assessment;
+
+import com.warba.assessment.cache.AttachmentCache;
+import com.warba.assessment.repository.projection.AttachmentDownloadView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AttachmentCacheTest {
+
+    private AttachmentCache cache;
+
+    private SimpleMeterRegistry registry;
+
+    private AttachmentDownloadView view;
+
+    @BeforeEach
+    void setUp() {
+        cache = new AttachmentCache(10, 6);
+        registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        view = mock(AttachmentDownloadView.class);
+        when(view.getFileName()).thenReturn("scan.pdf");
+    }
+
+    @Test
+    void get_AfterPut_ServesCachedBytesAndCountsHit() throws IOException {
+        // Arrange
+        cache.put(1L, view, new ByteArrayResource("abcd".getBytes()));
+
+        // Act
+        AttachmentCache.Entry entry = cache.get(1L);
+        AttachmentCache.Entry missing = cache.get(2L);
+
+        // Assert
+        assertArrayEquals("abcd".getBytes(), entry.resource().getContentAsByteArray());
+        assertEquals("scan.pdf", entry.attachment().getFileName());
+        assertTrue(entry.content().isDirect());
+        assertNull(missing);
+        assertEquals(1.0, registry.get("attachment.cache.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("attachment.cache.requests").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void put_OverCapacity_EvictsLeastRecentlyUsed() throws IOException {
+        // Arrange
+        cache.put(1L, view, new ByteArrayResource("aaaa".getBytes()));
+        cache.put(2L, view, new ByteArrayResource("bbbb".getBytes()));
+        cache.get(1L);
+
+        // Act
+        cache.put(3L, view, new ByteArrayResource("cccc".getBytes()));
+
+        // Assert
+        assertNotNull(cache.peek(1L));
+        assertNull(cache.peek(2L));
+        assertEquals(8, cache.usedBytes());
+        assertEquals(1.0, registry.get("attachment.cache.evictions").functionCounter().count());
+    }
+
+    @Test
+    void put_LargerThanEntryLimit_BypassesCache() throws IOException {
+        // Act
+        AttachmentCache.Entry entry = cache.put(1L, view, new ByteArrayResource("too large".getBytes()));
+
+        // Assert
+        assertNull(entry);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void evictOnCommit_InTransaction_KeepsEntryUntilCommit() throws IOException {
+        // Arrange
+        cache.put(1L, view, new ByteArrayResource("abcd".getBytes()));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // Act
+            cache.evictOnCommit(List.of(1L));
+
+            // Assert
+            assertNotNull(cache.peek(1L));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+            assertNull(cache.peek(1L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+}
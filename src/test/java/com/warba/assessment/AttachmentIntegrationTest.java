@@ -0,0 +1,226 @@
+package com.warba.assessment;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import com.jayway.jsonpath.JsonPath;
+import com.warba.assessment.service.AttachmentService;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "file.storage.backend=memory",
+        "file.upload.staging-location=${java.io.tmpdir}/attachment-it-staging"
+})
+@AutoConfigureMockMvc
+public class AttachmentIntegrationTest {
+
+    private static final String CONTENT = "0123456789abcdefghij";
+    // sha-256 of CONTENT
+    private static final String ETAG = "\"6bc14bdc4517a7a682c6910de2e2946eb8e1ecd04090728fef6d092a7ceb62c5\"";
+
+    private static final String BOUNDARY = "attachment-boundary";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private AttachmentService attachmentService;
+
+    private Long attachmentId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "scan.txt", "text/plain",
+                CONTENT.getBytes(StandardCharsets.UTF_8));
+        String id = mockMvc.perform(multipart("/api/attachments/upload").file(file).param("type", "PASSPORT"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        attachmentId = Long.valueOf(id);
+    }
+
+    @Test
+    void storageWriteExecutor_LeavesDefaultTaskExecutorInPlace() {
+        // async MVC handling would fall back to a new thread per request without it
+        assertTrue(applicationContext.containsBean("applicationTaskExecutor"));
+        AttachmentService target = AopTestUtils.getTargetObject(attachmentService);
+        assertSame(applicationContext.getBean("storageWriteExecutor"), ReflectionTestUtils.getField(target, "storageWriteExecutor"));
+    }
+
+    @Test
+    void chunkedUpload_WithResentChunk_AssemblesAttachment() throws Exception {
+        String session = mockMvc.perform(post("/api/attachments/uploads")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fileName\":\"large.txt\",\"type\":\"PASSPORT\",\"totalSize\":20,\"contentType\":\"text/plain\"}"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.offset").value(0))
+                .andReturn().getResponse().getContentAsString();
+        String uploadId = JsonPath.read(session, "$.id");
+
+        putChunk(uploadId, 0, CONTENT.substring(0, 12)).andExpect(jsonPath("$.offset").value(12));
+        // the client resends from an earlier offset after losing the response
+        putChunk(uploadId, 8, CONTENT.substring(8)).andExpect(jsonPath("$.offset").value(20));
+
+        String id = mockMvc.perform(post("/api/attachments/uploads/" + uploadId + "/complete"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get("/api/attachments/download/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(content().string(CONTENT));
+        mockMvc.perform(get("/api/attachments/uploads/" + uploadId))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void chunkedUpload_WithGapOrMissingBytes_IsRejected() throws Exception {
+        String session = mockMvc.perform(post("/api/attachments/uploads")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fileName\":\"large.txt\",\"type\":\"PASSPORT\",\"totalSize\":20}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String uploadId = JsonPath.read(session, "$.id");
+
+        putChunk(uploadId, 0, "0123");
+        mockMvc.perform(put("/api/attachments/uploads/" + uploadId).param("offset", "10")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM).content("abcd"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/attachments/uploads/" + uploadId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offset").value(4));
+        mockMvc.perform(post("/api/attachments/uploads/" + uploadId + "/complete"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void bulkUpload_WithSeveralFiles_ReturnsIdsInOrder() throws Exception {
+        MockMultipartFile first = new MockMultipartFile("files", "first.txt", "text/plain", "first".getBytes(StandardCharsets.UTF_8));
+        MockMultipartFile second = new MockMultipartFile("files", "second.txt", "text/plain", CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        String ids = mockMvc.perform(multipart("/api/attachments/upload/bulk").file(first).file(second).param("type", "PASSPORT"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andReturn().getResponse().getContentAsString();
+
+        Integer secondId = JsonPath.read(ids, "$[1]");
+        mockMvc.perform(get("/api/attachments/download/" + secondId))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void streamingUpload_WithTypeBeforeFile_StoresAttachment() throws Exception {
+        String id = mockMvc.perform(post("/api/attachments/upload/stream")
+                        .contentType("multipart/form-data; boundary=" + BOUNDARY)
+                        .content(multipartBody(true)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(get("/api/attachments/download/" + id))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"streamed.txt\""))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void streamingUpload_WithFileBeforeType_IsRejected() throws Exception {
+        mockMvc.perform(post("/api/attachments/upload/stream")
+                        .contentType("multipart/form-data; boundary=" + BOUNDARY)
+                        .content(multipartBody(false)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private static byte[] multipartBody(boolean typeFirst) {
+        String type = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"type\"\r\n\r\n"
+                + "PASSPORT\r\n";
+        String file = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"streamed.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + CONTENT + "\r\n";
+        String body = (typeFirst ? type + file : file + type) + "--" + BOUNDARY + "--\r\n";
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private ResultActions putChunk(String uploadId, long offset, String chunk) throws Exception {
+        return mockMvc.perform(put("/api/attachments/uploads/" + uploadId).param("offset", String.valueOf(offset))
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content(chunk.getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void download_WithoutConditions_ReturnsWholeFileWithETag() throws Exception {
+        mockMvc.perform(get("/api/attachments/download/" + attachmentId))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void download_WithMatchingIfNoneMatch_ReturnsNotModified() throws Exception {
+        mockMvc.perform(get("/api/attachments/download/" + attachmentId).header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    void download_WithSingleRange_ReturnsPartialContent() throws Exception {
+        mockMvc.perform(get("/api/attachments/download/" + attachmentId).header(HttpHeaders.RANGE, "bytes=10-"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 10-19/20"))
+                .andExpect(content().string("abcdefghij"));
+    }
+
+    @Test
+    void download_WithMultipleRanges_ReturnsByteranges() throws Exception {
+        mockMvc.perform(get("/api/attachments/download/" + attachmentId).header(HttpHeaders.RANGE, "bytes=0-1,5-6"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, startsWith("multipart/byteranges")));
+    }
+
+    @Test
+    void download_WithMatchingIfRange_ReturnsPartialContent() throws Exception {
+        mockMvc.perform(get("/api/attachments/download/" + attachmentId)
+                        .header(HttpHeaders.RANGE, "bytes=0-3")
+                        .header(HttpHeaders.IF_RANGE, ETAG))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().string("0123"));
+    }
+
+    @Test
+    void download_WithStaleIfRange_ReturnsWholeFile() throws Exception {
+        mockMvc.perform(get("/api/attachments/download/" + attachmentId)
+                        .header(HttpHeaders.RANGE, "bytes=0-3")
+                        .header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().string(CONTENT));
+    }
+}
@@ -1,25 +1,36 @@
 package com.warba.assessment;
 
+import com.warba.assessment.cache.AttachmentCache;
+import com.warba.assessment.cache.ReferenceDataRegistry;
 import com.warba.assessment.entity.Attachment;
 import com.warba.assessment.entity.AttachmentType;
 import com.warba.assessment.exception.FileStorageException;
 import com.warba.assessment.exception.ResourceNotFoundException;
+import com.warba.assessment.repository.AttachmentBlobRepository;
 import com.warba.assessment.repository.AttachmentRepository;
-import com.warba.assessment.repository.AttachmentTypeRepository;
+import com.warba.assessment.repository.projection.AttachmentDownloadView;
 import com.warba.assessment.service.AttachmentServiceImpl;
+import com.warba.assessment.storage.InMemoryStorageBackend;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.Resource;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -32,21 +43,26 @@ public class AttachmentServiceImplTest {
     private AttachmentRepository attachmentRepository;
 
     @Mock
-    private AttachmentTypeRepository attachmentTypeRepository;
+    private ReferenceDataRegistry referenceData;
 
-    @InjectMocks
-    private AttachmentServiceImpl attachmentService;
+    @Mock
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private InMemoryStorageBackend storageBackend;
 
-    private Path tempDir;
+    private AttachmentServiceImpl attachmentService;
 
     private MockMultipartFile file;
 
     @BeforeEach
-    public void setup() throws IOException {
-        tempDir = Files.createTempDirectory("test-uploads");
-        ReflectionTestUtils.setField(attachmentService, "fileStorageLocation", tempDir.toString());
-
-        attachmentService.init();
+    public void setup() {
+        storageBackend = new InMemoryStorageBackend();
+        attachmentService = new AttachmentServiceImpl(attachmentRepository, referenceData,
+                attachmentBlobRepository, storageBackend, Runnable::run, new AttachmentCache(0, 0),
+                new TransactionTemplate(transactionManager));
         file = new MockMultipartFile(
                 "file",
                 "test.txt",
@@ -55,12 +71,6 @@ public class AttachmentServiceImplTest {
         );
     }
 
-    @Test
-    public void init_WhenCalled_TempDirectoryCreated() {
-        // Verify directory is created during initialization
-        assertTrue(Files.exists(tempDir));
-    }
-
     @Test
     public void saveAttachment_WithValidInput_ReturnsAttachmentId() {
         // Arrange
@@ -74,7 +84,7 @@ public class AttachmentServiceImplTest {
         savedAttachment.setFileType("text/plain");
         savedAttachment.setAttachmentType(attachmentType);
 
-        when(attachmentTypeRepository.findByName("document")).thenReturn(Optional.of(attachmentType));
+        when(referenceData.findAttachmentTypeReference("document")).thenReturn(Optional.of(attachmentType));
         when(attachmentRepository.save(any(Attachment.class))).thenReturn(savedAttachment);
 
         // Act
@@ -83,7 +93,199 @@ public class AttachmentServiceImplTest {
         // Assert
         assertEquals(1L, attachmentId);
         verify(attachmentRepository).save(any(Attachment.class));
-        verify(attachmentTypeRepository).findByName("document");
+        verify(referenceData).findAttachmentTypeReference("document");
+    }
+
+    @Test
+    public void saveAttachment_WithValidInput_RecordsSizeAndChecksum() {
+        // Arrange
+        AttachmentType attachmentType = new AttachmentType();
+        attachmentType.setId(1L);
+        attachmentType.setName("document");
+        ArgumentCaptor<Attachment> captor = ArgumentCaptor.forClass(Attachment.class);
+
+        when(referenceData.findAttachmentTypeReference("document")).thenReturn(Optional.of(attachmentType));
+        when(attachmentRepository.save(captor.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        attachmentService.saveAttachment(file, "document");
+
+        // Assert
+        Attachment saved = captor.getValue();
+        assertEquals(13L, saved.getFileSize());
+        // sha-256 of "Hello, World!"
+        assertEquals("dffd6021bb2bd5b0af676290809ec3a53191dd81c7f70a4b28688a362182986f", saved.getChecksum());
+    }
+
+    @Test
+    public void saveAttachment_ContentAddressedDuplicate_StoresOneBlob() {
+        // Arrange
+        ReflectionTestUtils.setField(attachmentService, "contentAddressed", true);
+        AttachmentType attachmentType = new AttachmentType();
+        attachmentType.setId(1L);
+        attachmentType.setName("document");
+        ArgumentCaptor<Attachment> captor = ArgumentCaptor.forClass(Attachment.class);
+        String digest = "dffd6021bb2bd5b0af676290809ec3a53191dd81c7f70a4b28688a362182986f";
+
+        when(referenceData.findAttachmentTypeReference("document")).thenReturn(Optional.of(attachmentType));
+        when(attachmentRepository.save(captor.capture())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // Act
+        attachmentService.saveAttachment(file, "document");
+        attachmentService.saveAttachment(file, "document");
+
+        // Assert
+        assertEquals(digest, captor.getAllValues().get(0).getFileName());
+        assertEquals(digest, captor.getAllValues().get(1).getFileName());
+        assertEquals("test.txt", captor.getAllValues().get(1).getOriginalFileName());
+        assertEquals(Set.of(digest), storageBackend.keys());
+        verify(attachmentBlobRepository, times(2)).addReference(digest, 13L);
+    }
+
+    @Test
+    public void saveAttachment_ContentAddressed_TakesReferenceBeforeWritingBlob() {
+        // Arrange
+        ReflectionTestUtils.setField(attachmentService, "contentAddressed", true);
+        AttachmentType attachmentType = new AttachmentType();
+        attachmentType.setName("document");
+        String digest = "dffd6021bb2bd5b0af676290809ec3a53191dd81c7f70a4b28688a362182986f";
+        List<Boolean> storedWhenReferenced = new ArrayList<>();
+
+        when(referenceData.findAttachmentTypeReference("document")).thenReturn(Optional.of(attachmentType));
+        when(attachmentRepository.save(any(Attachment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(attachmentBlobRepository.addReference(digest, 13L)).thenAnswer(invocation -> {
+            storedWhenReferenced.add(storageBackend.exists(digest));
+            return 1;
+        });
+
+        // Act
+        attachmentService.saveAttachment(file, "document");
+
+        // Assert
+        assertEquals(List.of(false), storedWhenReferenced);
+        assertTrue(storageBackend.exists(digest));
+    }
+
+    @Test
+    public void saveAttachments_ContentAddressedDuplicates_ReferenceEachAndStoreOneBlob() {
+        // Arrange
+        ReflectionTestUtils.setField(attachmentService, "contentAddressed", true);
+        AttachmentType passport = new AttachmentType();
+        passport.setName("PASSPORT");
+        MockMultipartFile copy = new MockMultipartFile("files", "copy.txt", "text/plain", "Hello, World!".getBytes());
+        String digest = "dffd6021bb2bd5b0af676290809ec3a53191dd81c7f70a4b28688a362182986f";
+        List<Boolean> storedWhenReferenced = new ArrayList<>();
+
+        when(referenceData.findAttachmentTypeReference("PASSPORT")).thenReturn(Optional.of(passport));
+        when(attachmentRepository.saveAll(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(attachmentBlobRepository.addReference(digest, 13L)).thenAnswer(invocation -> {
+            storedWhenReferenced.add(storageBackend.exists(digest));
+            return 1;
+        });
+
+        // Act
+        attachmentService.saveAttachments(List.of(file, copy), List.of("PASSPORT"));
+
+        // Assert
+        assertEquals(List.of(false, false), storedWhenReferenced);
+        assertEquals(Set.of(digest), storageBackend.keys());
+    }
+
+    @Test
+    public void saveAttachment_FromStream_ReadsBodyBeforeTransactionBegins() {
+        // Arrange
+        AttachmentType attachmentType = new AttachmentType();
+        attachmentType.setName("document");
+        List<Boolean> inTransactionWhileReading = new ArrayList<>();
+        InputStream body = new FilterInputStream(new ByteArrayInputStream("Hello, World!".getBytes())) {
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                inTransactionWhileReading.add(!mockingDetails(transactionManager).getInvocations().isEmpty());
+                return super.read(buffer, offset, length);
+            }
+        };
+
+        when(referenceData.findAttachmentTypeReference("document")).thenReturn(Optional.of(attachmentType));
+        when(attachmentRepository.save(any(Attachment.class))).thenAnswer(invocation -> {
+            Attachment attachment = invocation.getArgument(0);
+            attachment.setId(1L);
+            return attachment;
+        });
+
+        // Act
+        Long attachmentId = attachmentService.saveAttachment(body, "test.txt", "text/plain", "document");
+
+        // Assert
+        assertEquals(1L, attachmentId);
+        assertFalse(inTransactionWhileReading.isEmpty());
+        assertFalse(inTransactionWhileReading.contains(true));
+        verify(transactionManager).getTransaction(any());
+    }
+
+    @Test
+    public void saveAttachment_FromStreamWhenRowCannotBeSaved_DeletesStoredFile() {
+        // Arrange
+        when(referenceData.findAttachmentTypeReference("invalid-type")).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(FileStorageException.class, () -> attachmentService.saveAttachment(
+                new ByteArrayInputStream("Hello, World!".getBytes()), "test.txt", "text/plain", "invalid-type"));
+        assertTrue(storageBackend.keys().isEmpty());
+        verify(transactionManager).rollback(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void saveAttachments_WithSeveralFiles_SavesOneBatch() {
+        // Arrange
+        AttachmentType passport = new AttachmentType();
+        passport.setName("PASSPORT");
+        AttachmentType contract = new AttachmentType();
+        contract.setName("CONTRACT");
+        MockMultipartFile second = new MockMultipartFile("files", "second.pdf", "application/pdf", "second".getBytes());
+        MockMultipartFile third = new MockMultipartFile("files", "third.pdf", "application/pdf", "third".getBytes());
+        ArgumentCaptor<List<Attachment>> captor = ArgumentCaptor.forClass(List.class);
+
+        when(referenceData.findAttachmentTypeReference("PASSPORT")).thenReturn(Optional.of(passport));
+        when(referenceData.findAttachmentTypeReference("CONTRACT")).thenReturn(Optional.of(contract));
+        when(attachmentRepository.saveAll(captor.capture())).thenAnswer(invocation -> {
+            List<Attachment> attachments = invocation.getArgument(0);
+            for (int i = 0; i < attachments.size(); i++) {
+                attachments.get(i).setId(10L + i);
+            }
+            return attachments;
+        });
+
+        // Act
+        List<Long> ids = attachmentService.saveAttachments(List.of(file, second, third),
+                List.of("PASSPORT", "CONTRACT", "PASSPORT"));
+
+        // Assert
+        assertEquals(List.of(10L, 11L, 12L), ids);
+        List<Attachment> saved = captor.getValue();
+        assertEquals("CONTRACT", saved.get(1).getAttachmentType().getName());
+        assertEquals("third.pdf", saved.get(2).getOriginalFileName());
+        assertEquals(3, storageBackend.keys().size());
+        verify(attachmentRepository, never()).save(any(Attachment.class));
+    }
+
+    @Test
+    public void releaseFiles_ContentAddressed_ReleasesEachReference() {
+        // Arrange
+        ReflectionTestUtils.setField(attachmentService, "contentAddressed", true);
+        Attachment first = new Attachment();
+        first.setFileName("digest-a");
+        Attachment second = new Attachment();
+        second.setFileName("digest-a");
+        Attachment third = new Attachment();
+        third.setFileName("digest-b");
+
+        // Act
+        attachmentService.releaseFiles(List.of(first, second, third));
+
+        // Assert
+        verify(attachmentBlobRepository).releaseReferences("digest-a", 2);
+        verify(attachmentBlobRepository).releaseReferences("digest-b", 1);
     }
 
     @Test
@@ -108,7 +310,7 @@ public class AttachmentServiceImplTest {
 
     @Test
     public void saveAttachment_WithInvalidAttachmentType_ThrowsFileStorageException() {
-        when(attachmentTypeRepository.findByName("invalid-type")).thenReturn(Optional.empty());
+        when(referenceData.findAttachmentTypeReference("invalid-type")).thenReturn(Optional.empty());
 
         // Act & Assert
         FileStorageException exception = assertThrows(
@@ -161,7 +363,7 @@ public class AttachmentServiceImplTest {
                 "Hello, World!".getBytes()
         );
 
-        when(attachmentTypeRepository.findByName("document")).thenReturn(Optional.of(attachmentType));
+        when(referenceData.findAttachmentTypeReference("document")).thenReturn(Optional.of(attachmentType));
         when(attachmentRepository.save(any(Attachment.class))).thenReturn(savedAttachment);
 
         // Act
@@ -211,15 +413,15 @@ public class AttachmentServiceImplTest {
     public void loadFileAsResource_ValidFile_Success() throws IOException {
         // Arrange
         String fileName = "test-file.txt";
-        Path filePath = tempDir.resolve(fileName);
         String content = "Test content";
-        Files.write(filePath, content.getBytes());
+        storageBackend.store(fileName, new ByteArrayInputStream(content.getBytes()));
 
         // Act
-        byte[] result = attachmentService.loadFileAsResource(fileName);
+        Resource result = attachmentService.loadFileAsResource(fileName);
 
         // Assert
-        assertArrayEquals(content.getBytes(), result);
+        assertEquals(content.length(), result.contentLength());
+        assertArrayEquals(content.getBytes(), result.getContentAsByteArray());
     }
 
     @Test
@@ -235,4 +437,21 @@ public class AttachmentServiceImplTest {
 
         assertTrue(exception.getMessage().contains("File not found"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void loadFileAsResource_AttachmentDeletedWhileDownloading_DoesNotStayCached() throws IOException {
+        // Arrange
+        AttachmentCache cache = new AttachmentCache(100, 100);
+        AttachmentServiceImpl cachingService = new AttachmentServiceImpl(attachmentRepository, referenceData,
+                attachmentBlobRepository, storageBackend, Runnable::run, cache, new TransactionTemplate(transactionManager));
+        storageBackend.store("scan.pdf", new ByteArrayInputStream("scanned".getBytes()));
+        AttachmentDownloadView view = mock(AttachmentDownloadView.class);
+        when(view.getFileName()).thenReturn("scan.pdf");
+        // the row was read before the deletion committed and evicted the entry, the file is still there
+        when(attachmentRepository.existsById(1L)).thenReturn(false);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> cachingService.loadFileAsResource(1L, view));
+        assertNull(cache.peek(1L));
+    }
+}
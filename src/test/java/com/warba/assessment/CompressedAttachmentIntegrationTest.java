@@ -0,0 +1,80 @@
+package com.warba.assessment;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "file.storage.backend=memory",
+        "file.storage.compression.enabled=true"
+})
+@AutoConfigureMockMvc
+public class CompressedAttachmentIntegrationTest {
+
+    private static final String CONTENT = "page of a scanned contract\n".repeat(200);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void download_AcceptingGzip_ReturnsStoredBytesWithContentEncoding() throws Exception {
+        String id = upload("contract.txt", "text/plain", CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        MvcResult result = mockMvc.perform(get("/api/attachments/download/" + id).header(HttpHeaders.ACCEPT_ENCODING, "br, gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        assertTrue(body.length < CONTENT.length() / 10);
+        assertEquals(CONTENT, new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(), StandardCharsets.UTF_8));
+        assertTrue(result.getResponse().getHeader(HttpHeaders.ETAG).endsWith("-gzip\""));
+    }
+
+    @Test
+    void download_WithoutAcceptEncoding_DecompressesOnTheFly() throws Exception {
+        String id = upload("contract.txt", "text/plain", CONTENT.getBytes(StandardCharsets.UTF_8));
+
+        mockMvc.perform(get("/api/attachments/download/" + id).header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, CONTENT.length()))
+                .andExpect(content().string(CONTENT));
+    }
+
+    @Test
+    void upload_IncompressibleType_IsStoredAsIs() throws Exception {
+        byte[] png = CONTENT.getBytes(StandardCharsets.UTF_8);
+        String id = upload("scan.png", "image/png", png);
+
+        mockMvc.perform(get("/api/attachments/download/" + id).header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().bytes(png));
+    }
+
+    private String upload(String fileName, String contentType, byte[] content) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", fileName, contentType, content);
+        return mockMvc.perform(multipart("/api/attachments/upload").file(file).param("type", "PASSPORT"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+    }
+}
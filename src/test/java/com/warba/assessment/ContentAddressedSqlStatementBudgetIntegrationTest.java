@@ -0,0 +1,105 @@
+package com.warba.assessment;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.warba.assessment.base.ApiResponse;
+import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.support.SqlStatementCounter;
+import com.warba.assessment.support.SqlStatementCountingConfiguration;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * The statement budgets of {@link SqlStatementBudgetIntegrationTest} for the calls that cost more
+ * with content-addressed storage, which takes and releases blob references.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:CONTENT_ADDRESSED_SQL_STATEMENT_BUDGET",
+        "file.storage.backend=memory",
+        "file.storage.content-addressed=true",
+        "file.gc.enabled=false"
+})
+@AutoConfigureMockMvc
+@Import(SqlStatementCountingConfiguration.class)
+public class ContentAddressedSqlStatementBudgetIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Test
+    void uploadAndDelete_StayWithinBudget() throws Exception {
+        Long userId = payload(mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createUserDtoBuilder().build())))
+                .andExpect(status().isCreated())
+                .andReturn());
+
+        // the first id draws a pool, then the blob reference and the insert
+        Long first = Long.valueOf(perform(3, multipart("/api/attachments/upload").file(file("file", "same content"))
+                .param("type", "PASSPORT"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+        // a blob reference per file, then one JDBC batch of inserts
+        perform(4, multipart("/api/attachments/upload/bulk")
+                .file(file("files", "same content")).file(file("files", "same content")).file(file("files", "other content"))
+                .param("type", "PASSPORT"))
+                .andExpect(status().isCreated());
+        Long second = Long.valueOf(mockMvc.perform(multipart("/api/attachments/upload").file(file("file", "same content"))
+                        .param("type", "PASSPORT"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+
+        CreateRequestDto createRequest = CreateRequestDto.builder()
+                .requestName("Account opening")
+                .statusId(1L)
+                .userId(userId)
+                .attachmentIds(List.of(first, second))
+                .build();
+        Long requestId = payload(mockMvc.perform(post("/api/requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createRequest)))
+                .andExpect(status().isCreated())
+                .andReturn());
+
+        // the request and its attachments, one release per distinct content, then deleting both
+        perform(5, delete("/api/requests/" + requestId)).andExpect(status().isNoContent());
+    }
+
+    private ResultActions perform(int budget, RequestBuilder request) throws Exception {
+        return sqlStatementCounter.assertAtMost(budget, () -> mockMvc.perform(request));
+    }
+
+    private static MockMultipartFile file(String name, String content) {
+        return new MockMultipartFile(name, "scan.txt", "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long payload(MvcResult result) throws Exception {
+        ApiResponse<Long> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        return response.getPayload();
+    }
+}
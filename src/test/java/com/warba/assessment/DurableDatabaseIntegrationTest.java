@@ -0,0 +1,52 @@
+package com.warba.assessment;
+
+import com.warba.assessment.db.H2Compactor;
+import com.warba.assessment.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the application twice on the same data directory with the {@code durable} profile and
+ * checks that what the first run wrote is there in the second.
+ */
+class DurableDatabaseIntegrationTest {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void durableProfile_AfterRestart_KeepsUsers() throws Exception {
+        Long userId;
+        String name;
+        try (ConfigurableApplicationContext context = start()) {
+            name = createUserDtoBuilder().build().getName();
+            userId = context.getBean(UserService.class).createUser(createUserDtoBuilder().name(name).build());
+            context.getBean(H2Compactor.class).compact();
+        }
+
+        assertTrue(Files.exists(dataDir.resolve("db").resolve("CORPORATE_REQUESTS.mv.db")));
+        try (ConfigurableApplicationContext context = start()) {
+            assertEquals(name, context.getBean(UserService.class).getUserById(userId).getName());
+        }
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(RequestManagementSystemApp.class)
+                .profiles("durable")
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "DATA_DIR=" + dataDir,
+                        "file.gc.enabled=false",
+                        "h2.compaction.interval=PT24H")
+                .run();
+    }
+}
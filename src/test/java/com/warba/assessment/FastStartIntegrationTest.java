@@ -0,0 +1,59 @@
+package com.warba.assessment;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Starts the application several times on the same data directory with the {@code durable} and
+ * {@code fast-start} profiles and checks when Hibernate validates the schema.
+ */
+class FastStartIntegrationTest {
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void fastStartProfile_ValidatesSchemaOnlyWhenItChanged() {
+        try (ConfigurableApplicationContext context = start()) {
+            assertEquals("validate", schemaAction(context));
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            assertEquals("none", schemaAction(context));
+            // as if a new migration had been applied since
+            context.getBean(JdbcTemplate.class).update("UPDATE WARBA.SCHEMA_VALIDATION SET FINGERPRINT = 'outdated'");
+        }
+
+        try (ConfigurableApplicationContext context = start()) {
+            assertEquals("validate", schemaAction(context));
+        }
+        try (ConfigurableApplicationContext context = start()) {
+            assertEquals("none", schemaAction(context));
+        }
+    }
+
+    private static Object schemaAction(ConfigurableApplicationContext context) {
+        return context.getBean(EntityManagerFactory.class).getProperties().get(AvailableSettings.HBM2DDL_AUTO);
+    }
+
+    private ConfigurableApplicationContext start() {
+        return new SpringApplicationBuilder(RequestManagementSystemApp.class)
+                .profiles("durable", "fast-start")
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "DATA_DIR=" + dataDir,
+                        "file.gc.enabled=false",
+                        "h2.compaction.enabled=false")
+                .run();
+    }
+}
@@ -0,0 +1,142 @@
+package com.warba.assessment;
+
+import com.warba.assessment.exception.FileStorageException;
+import com.warba.assessment.storage.FileSystemStorageBackend;
+import com.warba.assessment.storage.StorageBackend;
+import com.warba.assessment.storage.StorageReshardingMigrator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemStorageBackendTest {
+
+    private Path tempDir;
+
+    private FileSystemStorageBackend backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempDir = Files.createTempDirectory("test-uploads");
+        backend = new FileSystemStorageBackend(tempDir.toString(), 2, 2);
+    }
+
+    @Test
+    void store_WithValidKey_WritesIntoShardDirectory() throws IOException {
+        // Act
+        long size = backend.store("scan.pdf", new ByteArrayInputStream("content".getBytes()));
+
+        // Assert
+        assertEquals(7, size);
+        assertFalse(Files.exists(tempDir.resolve("scan.pdf")));
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            Path stored = files.filter(p -> p.getFileName().toString().equals("scan.pdf")).findFirst().orElseThrow();
+            assertEquals(3, tempDir.relativize(stored).getNameCount());
+        }
+        assertArrayEquals("content".getBytes(), backend.load("scan.pdf").getContentAsByteArray());
+    }
+
+    @Test
+    void load_KeyWithPathSequence_ThrowsFileStorageException() {
+        // Act & Assert
+        FileStorageException exception = assertThrows(
+                FileStorageException.class,
+                () -> backend.load("../outside.txt")
+        );
+
+        assertTrue(exception.getMessage().contains("File not found"));
+    }
+
+    @Test
+    void delete_StoredKey_RemovesFile() throws IOException {
+        // Arrange
+        backend.store("scan.pdf", new ByteArrayInputStream("content".getBytes()));
+
+        // Act & Assert
+        assertTrue(backend.delete("scan.pdf"));
+        assertFalse(backend.exists("scan.pdf"));
+    }
+
+    @Test
+    void move_StoredKey_MovesContentToTargetShard() throws IOException {
+        // Arrange
+        backend.store("scan.pdf", new ByteArrayInputStream("content".getBytes()));
+
+        // Act & Assert
+        assertTrue(backend.move("scan.pdf", "scan.pdf.discarded"));
+        assertFalse(backend.exists("scan.pdf"));
+        assertArrayEquals("content".getBytes(), backend.load("scan.pdf.discarded").getContentAsByteArray());
+        assertFalse(backend.move("scan.pdf", "scan.pdf.discarded"));
+    }
+
+    @Test
+    void migrate_FlatLayoutFiles_MovesThemIntoShardsAndKeepsThemReadable() throws IOException {
+        // Arrange
+        Files.writeString(tempDir.resolve("legacy.pdf"), "legacy");
+        FileSystemStorageBackend legacyBackend = new FileSystemStorageBackend(tempDir.toString(), 2, 2);
+        assertTrue(legacyBackend.exists("legacy.pdf"));
+
+        // Act
+        int moved = new StorageReshardingMigrator(legacyBackend).migrate();
+
+        // Assert
+        assertEquals(1, moved);
+        assertFalse(Files.exists(tempDir.resolve("legacy.pdf")));
+        assertArrayEquals("legacy".getBytes(), legacyBackend.load("legacy.pdf").getContentAsByteArray());
+    }
+
+    @Test
+    void migrate_FileWithInvalidKey_SkipsItAndMovesTheRest() throws IOException {
+        // Arrange
+        Files.writeString(tempDir.resolve("legacy..pdf"), "unreadable");
+        Files.writeString(tempDir.resolve("legacy.pdf"), "legacy");
+        FileSystemStorageBackend legacyBackend = new FileSystemStorageBackend(tempDir.toString(), 2, 2);
+
+        // Act
+        int moved = new StorageReshardingMigrator(legacyBackend).migrate();
+
+        // Assert
+        assertEquals(1, moved);
+        assertTrue(Files.exists(tempDir.resolve("legacy..pdf")));
+        assertFalse(Files.exists(tempDir.resolve("legacy.pdf")));
+        assertArrayEquals("legacy".getBytes(), legacyBackend.load("legacy.pdf").getContentAsByteArray());
+    }
+
+    @Test
+    void listKeys_InSmallPages_VisitsEveryShardOnce() throws IOException {
+        // Arrange
+        Set<String> stored = new HashSet<>();
+        for (int i = 0; i < 20; i++) {
+            backend.store("file-" + i, new ByteArrayInputStream(new byte[]{(byte) i}));
+            stored.add("file-" + i);
+        }
+        Files.createDirectories(tempDir.resolve(".staging"));
+        Files.writeString(tempDir.resolve(".staging").resolve("upload"), "partial");
+
+        // Act
+        List<String> listed = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            StorageBackend.KeyBatch batch = backend.listKeys(cursor, 3);
+            batch.keys().forEach(key -> listed.add(key.key()));
+            cursor = batch.nextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // Assert
+        assertEquals(20, listed.size());
+        assertEquals(stored, new HashSet<>(listed));
+        assertTrue(pages > 1);
+    }
+}
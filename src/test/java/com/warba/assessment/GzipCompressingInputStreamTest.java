@@ -0,0 +1,56 @@
+package com.warba.assessment;
+
+import com.warba.assessment.storage.GzipCompressingInputStream;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GzipCompressingInputStreamTest {
+
+    @Test
+    void read_RepetitiveContent_ProducesSmallerValidGzip() throws IOException {
+        // Arrange
+        byte[] content = "scanned page ".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        byte[] compressed;
+        long uncompressedSize;
+        try (GzipCompressingInputStream gzip = new GzipCompressingInputStream(new ByteArrayInputStream(content))) {
+            compressed = gzip.readAllBytes();
+            uncompressedSize = gzip.getUncompressedSize();
+        }
+
+        // Assert
+        assertTrue(compressed.length < content.length / 10);
+        assertEquals(content.length, uncompressedSize);
+        assertArrayEquals(content, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+    }
+
+    @Test
+    void read_RandomContentInSmallReads_RoundTrips() throws IOException {
+        // Arrange
+        byte[] content = new byte[100_000];
+        new Random(42).nextBytes(content);
+
+        // Act
+        byte[] compressed;
+        try (GzipCompressingInputStream gzip = new GzipCompressingInputStream(new ByteArrayInputStream(content))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int b;
+            while ((b = gzip.read()) != -1) {
+                out.write(b);
+            }
+            compressed = out.toByteArray();
+        }
+
+        // Assert
+        assertArrayEquals(content, new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes());
+    }
+}
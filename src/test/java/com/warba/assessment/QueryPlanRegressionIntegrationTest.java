@@ -0,0 +1,255 @@
+package com.warba.assessment;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.warba.assessment.base.ApiResponse;
+import com.warba.assessment.dto.request.BatchCreateRequestDto;
+import com.warba.assessment.dto.request.BatchCreateUserDto;
+import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.gc.StorageSweeper;
+import com.warba.assessment.support.SqlStatementCounter;
+import com.warba.assessment.support.SqlStatementCounter.RecordedStatement;
+import com.warba.assessment.support.SqlStatementCountingConfiguration;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the application's queries against a seeded database, replays each distinct statement
+ * under {@code EXPLAIN} with the parameters it ran with, and fails when a plan reads a whole
+ * table or index. A new query that needs an index fails here until the migration adding it is written.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:QUERY_PLANS",
+        "file.storage.backend=memory",
+        "file.upload.staging-location=${java.io.tmpdir}/query-plan-staging",
+        "file.gc.enabled=true",
+        "file.gc.interval=PT1H",
+        "file.gc.orphan-ttl=PT0S",
+        "file.gc.blob-grace-period=PT0S"
+})
+@AutoConfigureMockMvc
+@Import(SqlStatementCountingConfiguration.class)
+public class QueryPlanRegressionIntegrationTest {
+
+    private static final int USERS = 500;
+    private static final int REQUESTS = 5_000;
+    private static final int ATTACHMENTS = 10_000;
+
+    // H2 comments each table access with the index it uses and the condition it seeks on; a bare
+    // index name, or tableScan, means every row is read. MIN/MAX answered from the index are fine.
+    private static final Pattern FULL_SCAN = Pattern.compile("/\\* WARBA\\.\\w+(\\.tableScan)? \\*/(?!\\s*/\\* direct lookup)");
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Autowired
+    private StorageSweeper storageSweeper;
+
+    @BeforeEach
+    void seed() {
+        jdbcTemplate.update("""
+                INSERT INTO WARBA.USERS (NAME, CIVIL_ID, EXPIRY_DATE)
+                SELECT 'Seed user ' || X, 'SEED' || X, DATEADD('YEAR', 1, CURRENT_DATE) FROM SYSTEM_RANGE(1, ?)
+                """, USERS);
+        // ids come from pooled sequences and have gaps, so rows are matched up by position
+        jdbcTemplate.update("""
+                INSERT INTO WARBA.REQUESTS (REQUEST_NAME, STATUS_ID, OWNER_ID, CREATED_AT)
+                SELECT 'Seed request ' || X, MOD(X, 5) + 1, U.ID, DATEADD('MINUTE', -X, CURRENT_TIMESTAMP)
+                FROM SYSTEM_RANGE(1, ?)
+                JOIN (SELECT ID, ROW_NUMBER() OVER (ORDER BY ID) - 1 AS N FROM WARBA.USERS) U ON U.N = MOD(X, ?)
+                """, REQUESTS, USERS);
+        jdbcTemplate.update("""
+                INSERT INTO WARBA.ATTACHMENTS (FILE_NAME, ORIGINAL_FILE_NAME, FILE_TYPE, ATTACHMENT_TYPE, REQUEST_ID)
+                SELECT 'seed-' || X, 'seed-' || X || '.txt', 'text/plain', 1, R.ID
+                FROM SYSTEM_RANGE(1, ?)
+                JOIN (SELECT ID, ROW_NUMBER() OVER (ORDER BY ID) - 1 AS N FROM WARBA.REQUESTS) R ON R.N = MOD(X, ?)
+                """, ATTACHMENTS, REQUESTS);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void everyQuery_UsesAnIndex() throws Exception {
+        sqlStatementCounter.reset();
+        runWorkload();
+        List<RecordedStatement> statements = sqlStatementCounter.recordedStatements();
+
+        Map<String, RecordedStatement> distinct = new LinkedHashMap<>();
+        statements.stream()
+                .filter(statement -> !statement.sql().toLowerCase(Locale.ROOT).startsWith("insert"))
+                .forEach(statement -> distinct.putIfAbsent(statement.sql(), statement));
+        assertFalse(distinct.isEmpty());
+
+        List<String> tableScans = new ArrayList<>();
+        for (RecordedStatement statement : distinct.values()) {
+            String plan = explain(statement);
+            if (FULL_SCAN.matcher(plan).find()) {
+                tableScans.add(statement.sql() + "\n    " + plan.replace("\n", "\n    "));
+            }
+        }
+        assertTrue(tableScans.isEmpty(), "Queries reading a whole table:\n  " + String.join("\n  ", tableScans));
+    }
+
+    /**
+     * Exercises every endpoint and the storage sweeper, so every repository query runs at least once.
+     */
+    private void runWorkload() throws Exception {
+        Long userId = payload(mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createUserDtoBuilder().build())))
+                .andExpect(status().isCreated())
+                .andReturn());
+        mockMvc.perform(get("/api/users/" + userId)).andExpect(status().isOk());
+        mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(BatchCreateUserDto.builder()
+                                .users(List.of(createUserDtoBuilder().build(), createUserDtoBuilder().build())).build())))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/users").param("ids", String.valueOf(userId), "1", "2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/api/users/" + userId)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"name\":\"Renamed\",\"expiryDate\":\"2099-01-01\"}"))
+                .andExpect(status().isOk());
+
+        List<Long> attachmentIds = new ArrayList<>();
+        attachmentIds.add(upload("first.txt"));
+        attachmentIds.add(upload("second.txt"));
+        mockMvc.perform(multipart("/api/attachments/upload/bulk").file(file("files", "bulk.txt")).param("type", "ID_CARD"))
+                .andExpect(status().isCreated());
+        String session = mockMvc.perform(post("/api/attachments/uploads")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fileName\":\"large.txt\",\"type\":\"PASSPORT\",\"totalSize\":4}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String uploadId = JsonPath.read(session, "$.id");
+        mockMvc.perform(put("/api/attachments/uploads/" + uploadId).param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("abcd".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/attachments/uploads/" + uploadId)).andExpect(status().isOk());
+        mockMvc.perform(post("/api/attachments/uploads/" + uploadId + "/complete")).andExpect(status().isCreated());
+        mockMvc.perform(get("/api/attachments/" + attachmentIds.get(0))).andExpect(status().isOk());
+        mockMvc.perform(get("/api/attachments/download/" + attachmentIds.get(0))).andExpect(status().isOk());
+
+        CreateRequestDto createRequest = CreateRequestDto.builder()
+                .requestName("Account opening")
+                .statusId(1L)
+                .userId(userId)
+                .attachmentIds(attachmentIds)
+                .build();
+        Long requestId = payload(mockMvc.perform(post("/api/requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createRequest)))
+                .andExpect(status().isCreated())
+                .andReturn());
+        mockMvc.perform(get("/api/requests/" + requestId)).andExpect(status().isOk());
+        mockMvc.perform(post("/api/requests/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(BatchCreateRequestDto.builder().requests(List.of(createRequest)).build())))
+                .andExpect(status().isOk());
+
+        Long seededOwner = jdbcTemplate.queryForObject("SELECT MIN(ID) FROM WARBA.USERS", Long.class);
+        String page = mockMvc.perform(get("/api/requests/user/" + seededOwner + "/page").param("limit", "5"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String cursor = JsonPath.read(page, "$.payload.nextCursor");
+        mockMvc.perform(get("/api/requests/user/" + seededOwner + "/page").param("cursor", cursor).param("statusId", "2"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/api/requests/user/" + seededOwner + "/page")
+                        .param("from", "2000-01-01T00:00:00").param("to", "2100-01-01T00:00:00"))
+                .andExpect(status().isOk());
+
+        MvcResult zip = mockMvc.perform(get("/api/requests/" + requestId + "/attachments.zip")).andReturn();
+        mockMvc.perform(asyncDispatch(zip)).andExpect(status().isOk());
+        mockMvc.perform(delete("/api/requests/" + requestId)).andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/users/" + userId)).andExpect(status().isNoContent());
+
+        storageSweeper.sweep();
+    }
+
+    private String explain(RecordedStatement statement) {
+        return jdbcTemplate.execute((java.sql.Connection connection) -> {
+            try (PreparedStatement explain = connection.prepareStatement("EXPLAIN " + statement.sql())) {
+                for (ParameterSetOperation parameter : statement.parameters()) {
+                    bind(explain, parameter);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rows = explain.executeQuery()) {
+                    while (rows.next()) {
+                        plan.append(rows.getString(1));
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    private static void bind(PreparedStatement statement, ParameterSetOperation parameter) throws SQLException {
+        Object[] args = parameter.getArgs();
+        int index = (Integer) args[0];
+        if ("setNull".equals(parameter.getMethod().getName())) {
+            statement.setNull(index, (Integer) args[1]);
+        } else {
+            statement.setObject(index, args[1]);
+        }
+    }
+
+    private Long upload(String fileName) throws Exception {
+        String id = mockMvc.perform(multipart("/api/attachments/upload").file(file("file", fileName)).param("type", "PASSPORT"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return Long.valueOf(id);
+    }
+
+    private static MockMultipartFile file(String name, String fileName) {
+        return new MockMultipartFile(name, fileName, "text/plain", fileName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Long payload(MvcResult result) throws Exception {
+        ApiResponse<Long> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        return response.getPayload();
+    }
+}
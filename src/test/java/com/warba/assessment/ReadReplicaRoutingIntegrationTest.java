@@ -0,0 +1,54 @@
+package com.warba.assessment;
+
+import com.warba.assessment.db.H2Replicator;
+import com.warba.assessment.dto.request.UpdateUserDto;
+import com.warba.assessment.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs with the {@code replica} profile, replicating only when the test asks for it, so which
+ * database served a read shows in whether it sees the latest write.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:ROUTING",
+        "datasource.replica.url=jdbc:h2:mem:ROUTING_REPLICA",
+        "datasource.replica.replicator.interval=PT1H",
+        "datasource.routing.read-your-writes-window=PT0.5S",
+        "file.storage.backend=memory",
+        "file.gc.enabled=false"
+})
+@ActiveProfiles("replica")
+public class ReadReplicaRoutingIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private H2Replicator replicator;
+
+    @Test
+    void readOnlyTransactions_GoToReplicaOnceReadYourWritesWindowHasPassed() throws Exception {
+        Long userId = userService.createUser(createUserDtoBuilder().build());
+
+        // right after the write, reads stay on the primary
+        assertEquals(1, userService.getUsersByIds(List.of(userId)).size());
+
+        Thread.sleep(600);
+        assertEquals(List.of(), userService.getUsersByIds(List.of(userId)));
+        // writes still go to the primary, where the user exists
+        assertTrue(userService.updateUser(userId, new UpdateUserDto("Renamed", LocalDate.now().plusYears(2))));
+
+        replicator.replicate();
+        Thread.sleep(600);
+        assertEquals("Renamed", userService.getUsersByIds(List.of(userId)).get(0).getName());
+    }
+}
@@ -0,0 +1,90 @@
+package com.warba.assessment;
+
+import com.warba.assessment.cache.ReferenceDataRegistry;
+import com.warba.assessment.entity.AttachmentType;
+import com.warba.assessment.entity.Status;
+import com.warba.assessment.repository.AttachmentTypeRepository;
+import com.warba.assessment.repository.StatusRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataRegistryTest {
+
+    @Mock
+    private StatusRepository statusRepository;
+
+    @Mock
+    private AttachmentTypeRepository attachmentTypeRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private final Status draft = new Status(1L, Status.Statuses.DRAFT, "Draft");
+    private final Status done = new Status(4L, Status.Statuses.DONE, "Done");
+    private final AttachmentType passport = new AttachmentType(1L, "PASSPORT", "Passport");
+
+    private ReferenceDataRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        when(statusRepository.findAll()).thenReturn(List.of(draft, done));
+        when(attachmentTypeRepository.findAll()).thenReturn(List.of(passport));
+        registry = new ReferenceDataRegistry(statusRepository, attachmentTypeRepository, entityManager);
+    }
+
+    @Test
+    void lookups_KnownRows_AreServedWithoutQueries() {
+        // Act & Assert
+        assertSame(draft, registry.findStatus(1L).orElseThrow());
+        assertSame(done, registry.findStatus(Status.Statuses.DONE).orElseThrow());
+        assertSame(passport, registry.findAttachmentType("PASSPORT").orElseThrow());
+        verify(statusRepository, times(1)).findAll();
+        verify(attachmentTypeRepository, times(1)).findAll();
+    }
+
+    @Test
+    void lookups_UnknownRows_AreEmpty() {
+        // Act & Assert
+        assertTrue(registry.findStatus(2L).isEmpty());
+        assertTrue(registry.findStatus(99L).isEmpty());
+        assertTrue(registry.findStatus(-1L).isEmpty());
+        assertTrue(registry.findStatus((Long) null).isEmpty());
+        assertTrue(registry.findStatus(Status.Statuses.CANCELLED).isEmpty());
+        assertTrue(registry.findAttachmentType("CONTRACT").isEmpty());
+        assertTrue(registry.findStatusReference(99L).isEmpty());
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    void findStatusReference_KnownStatus_ReturnsProxyWithoutLoading() {
+        // Arrange
+        Status proxy = new Status();
+        when(entityManager.getReference(Status.class, 4L)).thenReturn(proxy);
+
+        // Act & Assert
+        assertSame(proxy, registry.findStatusReference(4L).orElseThrow());
+    }
+
+    @Test
+    void refresh_AfterTablesChanged_ServesNewRows() {
+        // Arrange
+        AttachmentType contract = new AttachmentType(6L, "CONTRACT", "Contract");
+        when(attachmentTypeRepository.findAll()).thenReturn(List.of(passport, contract));
+
+        // Act
+        registry.refresh();
+
+        // Assert
+        assertSame(contract, registry.findAttachmentType("CONTRACT").orElseThrow());
+    }
+}
@@ -0,0 +1,139 @@
+package com.warba.assessment;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.warba.assessment.base.ApiResponse;
+import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.service.AttachmentService;
+import com.warba.assessment.storage.InMemoryStorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "file.storage.backend=memory")
+@AutoConfigureMockMvc
+public class RequestAttachmentsIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AttachmentService attachmentService;
+
+    @Autowired
+    private InMemoryStorageBackend storageBackend;
+
+    private Long requestId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Long userId = payload(mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createUserDtoBuilder().build())))
+                .andExpect(status().isCreated())
+                .andReturn());
+
+        List<Long> attachmentIds = List.of(
+                upload("notes.txt", "text/plain", "first notes"),
+                upload("scan.png", "image/png", "not really a png"),
+                upload("notes.txt", "text/plain", "second notes"));
+
+        CreateRequestDto createRequest = CreateRequestDto.builder()
+                .requestName("Account opening")
+                .statusId(1L)
+                .userId(userId)
+                .attachmentIds(attachmentIds)
+                .build();
+        requestId = payload(mockMvc.perform(post("/api/requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createRequest)))
+                .andExpect(status().isCreated())
+                .andReturn());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        mockMvc.perform(delete("/api/requests/" + requestId));
+    }
+
+    @Test
+    void downloadAttachments_StreamsZipWithEveryAttachment() throws Exception {
+        MvcResult started = mockMvc.perform(get("/api/requests/" + requestId + "/attachments.zip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        byte[] zip = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/zip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        Map<String, String> entries = new LinkedHashMap<>();
+        Map<String, Integer> methods = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (ZipEntry entry = in.getNextEntry(); entry != null; entry = in.getNextEntry()) {
+                entries.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                methods.put(entry.getName(), entry.getMethod());
+            }
+        }
+        assertEquals(Map.of("notes.txt", "first notes", "scan.png", "not really a png", "notes (2).txt", "second notes"), entries);
+        assertEquals(ZipEntry.STORED, methods.get("scan.png"));
+        assertEquals(ZipEntry.DEFLATED, methods.get("notes.txt"));
+    }
+
+    @Test
+    void downloadAttachments_UnknownRequest_ReturnsNotFound() throws Exception {
+        mockMvc.perform(get("/api/requests/" + Long.MAX_VALUE + "/attachments.zip"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void downloadAttachments_FileMissingFromStorage_ReturnsNotFoundBeforeStreaming() throws Exception {
+        String fileName = attachmentService.getRequestAttachments(requestId).get(1).getFileName();
+        storageBackend.delete(fileName);
+
+        mockMvc.perform(get("/api/requests/" + requestId + "/attachments.zip"))
+                .andExpect(request().asyncNotStarted())
+                .andExpect(status().isNotFound());
+    }
+
+    private Long upload(String fileName, String contentType, String content) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", fileName, contentType, content.getBytes(StandardCharsets.UTF_8));
+        return Long.valueOf(mockMvc.perform(multipart("/api/attachments/upload").file(file).param("type", "PASSPORT"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private Long payload(MvcResult result) throws Exception {
+        ApiResponse<Long> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        return response.getPayload();
+    }
+}
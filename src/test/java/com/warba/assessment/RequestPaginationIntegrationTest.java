@@ -0,0 +1,149 @@
+package com.warba.assessment;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.warba.assessment.base.ApiResponse;
+import com.warba.assessment.dto.response.RequestDto;
+import com.warba.assessment.dto.response.RequestPageDto;
+import com.warba.assessment.entity.Request;
+import com.warba.assessment.repository.RequestRepository;
+import com.warba.assessment.repository.StatusRepository;
+import com.warba.assessment.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:REQUEST_PAGINATION",
+        "file.storage.backend=memory",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureMockMvc
+public class RequestPaginationIntegrationTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2024, 3, 1, 9, 0);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Long userId;
+
+    /**
+     * Seven requests a day apart, alternating between DRAFT and SUBMITTED; the last two share a
+     * creation time so the id has to break the tie.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        String response = mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createUserDtoBuilder().build())))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        userId = objectMapper.readValue(response, new TypeReference<ApiResponse<Long>>() {
+        }).getPayload();
+
+        for (int i = 0; i < 7; i++) {
+            Request request = requestRepository.save(Request.builder()
+                    .requestName("Request " + i)
+                    .owner(userRepository.getReferenceById(userId))
+                    .status(statusRepository.getReferenceById(i % 2 == 0 ? 1L : 2L))
+                    .build());
+            request.setCreatedAt(START.plusDays(Math.min(i, 5)));
+            requestRepository.save(request);
+        }
+    }
+
+    @Test
+    void getRequestPageByUser_WalkingAllPages_ReturnsEveryRequestNewestFirstOnce() throws Exception {
+        List<String> names = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/requests/user/" + userId + "/page").param("limit", "3");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            RequestPageDto page = page(request);
+            page.getRequests().forEach(dto -> names.add(dto.getRequestName()));
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(List.of("Request 6", "Request 5", "Request 4", "Request 3", "Request 2", "Request 1", "Request 0"), names);
+        assertEquals(3, pages);
+    }
+
+    @Test
+    void getRequestPageByUser_WithStatusAndDateRange_ReturnsMatchingRequests() throws Exception {
+        RequestPageDto page = page(get("/api/requests/user/" + userId + "/page")
+                .param("statusId", "1")
+                .param("from", START.plusDays(1).toString())
+                .param("to", START.plusDays(5).toString()));
+
+        assertEquals(List.of("Request 4", "Request 2"), page.getRequests().stream().map(RequestDto::getRequestName).toList());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getRequestPageByUser_WholePage_RunsFixedNumberOfStatements() throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        RequestPageDto page = page(get("/api/requests/user/" + userId + "/page").param("limit", "7"));
+
+        assertEquals(7, page.getRequests().size());
+        // the owner check, the requests joined to their owner, and their attachment ids
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+    }
+
+    @Test
+    void getRequestPageByUser_WithInvalidCursorOrLimit_ReturnsBadRequest() throws Exception {
+        mockMvc.perform(get("/api/requests/user/" + userId + "/page").param("cursor", "garbage"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/requests/user/" + userId + "/page").param("limit", "1000"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private RequestPageDto page(MockHttpServletRequestBuilder request) throws Exception {
+        String response = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readValue(response, new TypeReference<ApiResponse<RequestPageDto>>() {
+        }).getPayload();
+    }
+}
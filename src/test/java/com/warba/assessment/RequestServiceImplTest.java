@@ -1,8 +1,14 @@
 package com.warba.assessment;
 
 import com.warba.assessment.builder.Users;
+import com.warba.assessment.cache.ReferenceDataRegistry;
+import com.warba.assessment.db.ShardRouter;
+import com.warba.assessment.dto.request.BatchCreateRequestDto;
 import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.dto.request.RequestSearchDto;
+import com.warba.assessment.dto.response.BatchItemResultDto;
 import com.warba.assessment.dto.response.RequestDto;
+import com.warba.assessment.dto.response.RequestPageDto;
 import com.warba.assessment.entity.Attachment;
 import com.warba.assessment.entity.Request;
 import com.warba.assessment.entity.Status;
@@ -12,23 +18,35 @@ import com.warba.assessment.exception.ResourceNotFoundException;
 import com.warba.assessment.mapper.RequestMapper;
 import com.warba.assessment.repository.AttachmentRepository;
 import com.warba.assessment.repository.RequestRepository;
-import com.warba.assessment.repository.StatusRepository;
 import com.warba.assessment.repository.UserRepository;
+import com.warba.assessment.repository.projection.RequestAttachmentId;
+import com.warba.assessment.repository.projection.RequestCreationCheck;
+import com.warba.assessment.repository.projection.RequestRow;
+import com.warba.assessment.service.AttachmentService;
 import com.warba.assessment.service.RequestServiceImpl;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -41,14 +59,23 @@ class RequestServiceImplTest {
     private UserRepository userRepository;
 
     @Mock
-    private StatusRepository statusRepository;
+    private ReferenceDataRegistry referenceData;
 
     @Mock
     private AttachmentRepository attachmentRepository;
 
+    @Mock
+    private AttachmentService attachmentService;
+
     @Mock
     private RequestMapper requestMapper;
 
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    @Spy
+    private ShardRouter shards = new ShardRouter(false, List.of(), null);
+
     @InjectMocks
     private RequestServiceImpl requestService;
 
@@ -58,6 +85,7 @@ class RequestServiceImplTest {
     private Request validRequest;
     private CreateRequestDto validCreateRequestDto;
     private RequestDto validRequestDto;
+    private RequestRow validRow;
 
     @BeforeEach
     void setUp() {
@@ -96,48 +124,78 @@ class RequestServiceImplTest {
         validRequestDto = new RequestDto();
         validRequestDto.setId(1L);
         validRequestDto.setRequestName("Test Request");
+
+        validRow = new RequestRow(1L, "Test Request", 1L, validUser.getId(), validUser.getName(),
+                validUser.getCivilId(), validUser.getExpiryDate(), LocalDateTime.now());
     }
 
     @Test
     void createRequest_ValidInputs_CreatesSuccessfully() {
         // Arrange
-        when(userRepository.findById(validCreateRequestDto.getUserId())).thenReturn(Optional.of(validUser));
-        when(statusRepository.findById(validCreateRequestDto.getStatusId())).thenReturn(Optional.of(validStatus));
-        when(attachmentRepository.findAllById(validCreateRequestDto.getAttachmentIds())).thenReturn(validAttachments);
+        stubCheck(check(validUser.getExpiryDate(), 2, null));
+        when(referenceData.findStatusReference(validCreateRequestDto.getStatusId())).thenReturn(Optional.of(validStatus));
         when(requestRepository.save(any(Request.class))).thenReturn(validRequest);
+        when(attachmentRepository.linkToRequest(validRequest.getId(), validCreateRequestDto.getAttachmentIds())).thenReturn(2);
 
         // Act
         Long resultId = requestService.createRequest(validCreateRequestDto);
 
         // Assert
         assertEquals(validRequest.getId(), resultId);
-        verify(userRepository).findById(validCreateRequestDto.getUserId());
-        verify(statusRepository).findById(validCreateRequestDto.getStatusId());
-        verify(attachmentRepository).findAllById(validCreateRequestDto.getAttachmentIds());
         verify(requestRepository).save(any(Request.class));
+        verify(attachmentRepository).linkToRequest(validRequest.getId(), validCreateRequestDto.getAttachmentIds());
+        verify(userRepository, never()).findById(any());
+        verify(attachmentRepository, never()).findAllById(any());
+    }
+
+    @Test
+    void createRequest_AttachmentAlreadyLinked_ThrowsBusinessValidationException() {
+        // Arrange
+        stubCheck(check(validUser.getExpiryDate(), 2, 2L));
+        when(referenceData.findStatusReference(validCreateRequestDto.getStatusId())).thenReturn(Optional.of(validStatus));
+
+        // Act & Assert
+        BusinessValidationException exception = assertThrows(BusinessValidationException.class, () ->
+                requestService.createRequest(validCreateRequestDto)
+        );
+
+        assertEquals("Attachment 2 already belongs to a request", exception.getMessage());
+        verify(requestRepository, never()).save(any());
+    }
+
+    @Test
+    void createRequest_AttachmentLinkedAfterCheck_ThrowsBusinessValidationException() {
+        // Arrange
+        stubCheck(check(validUser.getExpiryDate(), 2, null));
+        when(referenceData.findStatusReference(validCreateRequestDto.getStatusId())).thenReturn(Optional.of(validStatus));
+        when(requestRepository.save(any(Request.class))).thenReturn(validRequest);
+        when(attachmentRepository.linkToRequest(validRequest.getId(), validCreateRequestDto.getAttachmentIds())).thenReturn(1);
+
+        // Act & Assert
+        assertThrows(BusinessValidationException.class, () ->
+                requestService.createRequest(validCreateRequestDto)
+        );
     }
 
     @Test
     void createRequest_UserDoesNotExist_ThrowsResourceNotFoundException() {
         // Arrange
-        when(userRepository.findById(validCreateRequestDto.getUserId())).thenReturn(Optional.empty());
+        when(userRepository.checkRequestCreation(any(), any())).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () ->
                 requestService.createRequest(validCreateRequestDto)
         );
 
-        verify(userRepository).findById(validCreateRequestDto.getUserId());
-        verify(statusRepository, never()).findById(any());
-        verify(attachmentRepository, never()).findAllById(any());
         verify(requestRepository, never()).save(any());
+        verify(attachmentRepository, never()).linkToRequest(any(), any());
     }
 
     @Test
     void createRequest_UserHasExpiredCivilId_ThrowsBusinessValidationException() {
         // Arrange
         User userWithExpiredId = Users.expiredUserBuilder().build();
-        when(userRepository.findById(validCreateRequestDto.getUserId())).thenReturn(Optional.of(userWithExpiredId));
+        stubCheck(check(userWithExpiredId.getExpiryDate(), 2, null));
 
         // Act & Assert
         BusinessValidationException exception = assertThrows(BusinessValidationException.class, () ->
@@ -145,37 +203,28 @@ class RequestServiceImplTest {
         );
 
         assertTrue(exception.getMessage().contains("expired"));
-        verify(userRepository).findById(validCreateRequestDto.getUserId());
-        verify(statusRepository, never()).findById(any());
-        verify(attachmentRepository, never()).findAllById(any());
         verify(requestRepository, never()).save(any());
     }
 
     @Test
     void createRequest_StatusDoesNotExist_ThrowsResourceNotFoundException() {
         // Arrange
-        when(userRepository.findById(validCreateRequestDto.getUserId())).thenReturn(Optional.of(validUser));
-        when(statusRepository.findById(validCreateRequestDto.getStatusId())).thenReturn(Optional.empty());
+        stubCheck(check(validUser.getExpiryDate(), 2, null));
+        when(referenceData.findStatusReference(validCreateRequestDto.getStatusId())).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () ->
                 requestService.createRequest(validCreateRequestDto)
         );
 
-        verify(userRepository).findById(validCreateRequestDto.getUserId());
-        verify(statusRepository).findById(validCreateRequestDto.getStatusId());
-        verify(attachmentRepository, never()).findAllById(any());
         verify(requestRepository, never()).save(any());
     }
 
     @Test
     void createRequest_NotEnoughAttachments_ThrowsBusinessValidationException() {
         // Arrange
-        List<Attachment> insufficientAttachments = Collections.singletonList(new Attachment());
-
-        when(userRepository.findById(validCreateRequestDto.getUserId())).thenReturn(Optional.of(validUser));
-        when(statusRepository.findById(validCreateRequestDto.getStatusId())).thenReturn(Optional.of(validStatus));
-        when(attachmentRepository.findAllById(validCreateRequestDto.getAttachmentIds())).thenReturn(insufficientAttachments);
+        stubCheck(check(validUser.getExpiryDate(), 1, null));
+        when(referenceData.findStatusReference(validCreateRequestDto.getStatusId())).thenReturn(Optional.of(validStatus));
 
         // Act & Assert
         BusinessValidationException exception = assertThrows(BusinessValidationException.class, () ->
@@ -183,18 +232,114 @@ class RequestServiceImplTest {
         );
 
         assertTrue(exception.getMessage().contains("At least 2 attachments are required"));
-        verify(userRepository).findById(validCreateRequestDto.getUserId());
-        verify(statusRepository).findById(validCreateRequestDto.getStatusId());
-        verify(attachmentRepository).findAllById(validCreateRequestDto.getAttachmentIds());
         verify(requestRepository, never()).save(any());
     }
 
+    @Test
+    void createRequests_MixedItems_CreatesValidOnesAndReportsTheRest() {
+        // Arrange
+        Attachment attachment3 = new Attachment();
+        attachment3.setId(3L);
+        validCreateRequestDto.setUserId(validUser.getId());
+        CreateRequestDto reusesAttachment = CreateRequestDto.builder()
+                .requestName("Second").userId(validUser.getId()).statusId(1L).attachmentIds(List.of(2L, 3L)).build();
+        CreateRequestDto unknownUser = CreateRequestDto.builder()
+                .requestName("Third").userId(-1L).statusId(1L).attachmentIds(List.of(3L, 1L)).build();
+        CreateRequestDto blankName = CreateRequestDto.builder()
+                .requestName(" ").userId(validUser.getId()).statusId(1L).attachmentIds(List.of(3L, 1L)).build();
+
+        when(userRepository.findAllById(any())).thenReturn(List.of(validUser));
+        when(referenceData.findStatus(1L)).thenReturn(Optional.of(validStatus));
+        when(referenceData.findStatusReference(1L)).thenReturn(Optional.of(validStatus));
+        when(attachmentRepository.findAllById(any())).thenReturn(List.of(validAttachments.get(0), validAttachments.get(1), attachment3));
+        when(requestRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Request> requests = invocation.getArgument(0);
+            requests.forEach(request -> request.setId(42L));
+            return requests;
+        });
+
+        when(attachmentRepository.linkToRequests(Map.of(42L, List.of(1L, 2L)))).thenReturn(Map.of(42L, 2));
+
+        // Act
+        List<BatchItemResultDto> results = requestService.createRequests(
+                List.of(validCreateRequestDto, reusesAttachment, unknownUser, blankName));
+
+        // Assert
+        assertEquals(4, results.size());
+        assertEquals(42L, results.get(0).getRequestId());
+        assertNull(results.get(0).getError());
+        assertTrue(results.get(1).getError().contains("already belongs to a request"));
+        assertTrue(results.get(2).getError().contains("User not found"));
+        assertEquals("Request name is required", results.get(3).getError());
+        assertEquals(3, results.get(3).getIndex());
+        assertNull(attachment3.getRequest());
+        verify(userRepository, times(1)).findAllById(any());
+        verify(attachmentRepository, times(1)).findAllById(any());
+    }
+
+    @Test
+    void createRequests_AttachmentLinkedMeanwhile_ReportsItemAndDeletesItsRequest() {
+        // Arrange
+        Attachment attachment3 = new Attachment();
+        attachment3.setId(3L);
+        Attachment attachment4 = new Attachment();
+        attachment4.setId(4L);
+        validCreateRequestDto.setUserId(validUser.getId());
+        CreateRequestDto losesAttachment = CreateRequestDto.builder()
+                .requestName("Second").userId(validUser.getId()).statusId(1L).attachmentIds(List.of(3L, 4L)).build();
+
+        when(userRepository.findAllById(any())).thenReturn(List.of(validUser));
+        when(referenceData.findStatus(1L)).thenReturn(Optional.of(validStatus));
+        when(referenceData.findStatusReference(1L)).thenReturn(Optional.of(validStatus));
+        when(attachmentRepository.findAllById(any()))
+                .thenReturn(List.of(validAttachments.get(0), validAttachments.get(1), attachment3, attachment4));
+        when(requestRepository.saveAll(any())).thenAnswer(invocation -> {
+            List<Request> requests = invocation.getArgument(0);
+            for (int i = 0; i < requests.size(); i++) {
+                requests.get(i).setId(42L + i);
+            }
+            return requests;
+        });
+        // attachment 4 was linked by a concurrent request after the batch read it
+        when(attachmentRepository.linkToRequests(Map.of(42L, List.of(1L, 2L), 43L, List.of(3L, 4L))))
+                .thenReturn(Map.of(42L, 2, 43L, 1));
+
+        // Act
+        List<BatchItemResultDto> results = requestService.createRequests(List.of(validCreateRequestDto, losesAttachment));
+
+        // Assert
+        assertEquals(42L, results.get(0).getRequestId());
+        assertNull(results.get(0).getError());
+        assertNull(results.get(1).getRequestId());
+        assertEquals("An attachment was linked to another request meanwhile", results.get(1).getError());
+        verify(attachmentRepository).unlinkFromRequests(List.of(43L));
+        verify(requestRepository).deleteAll(argThat(requests -> requests.iterator().next().getId() == 43L));
+        assertNull(attachment3.getRequest());
+    }
+
+    @Test
+    void batchCreateRequestDto_WithNullItem_IsInvalid() {
+        // Arrange
+        BatchCreateRequestDto batch = new BatchCreateRequestDto(Arrays.asList(validCreateRequestDto, null));
+
+        // Act
+        Set<ConstraintViolation<BatchCreateRequestDto>> violations = validator.validate(batch);
+
+        // Assert
+        assertEquals(1, violations.size());
+        assertEquals("requests[1].<list element>", violations.iterator().next().getPropertyPath().toString());
+    }
+
     @Test
     void getRequest_ExistingRequest_ReturnsSuccessfully() {
         // Arrange
         Long requestId = 1L;
-        when(requestRepository.findById(requestId)).thenReturn(Optional.of(validRequest));
-        when(requestMapper.mapRequestToRequestDto(validRequest)).thenReturn(validRequestDto);
+        RequestAttachmentId attachmentId = mock(RequestAttachmentId.class);
+        when(attachmentId.getRequestId()).thenReturn(requestId);
+        when(attachmentId.getId()).thenReturn(5L);
+        when(requestRepository.findRows(any(), any(), eq(1))).thenReturn(List.of(validRow));
+        when(attachmentRepository.findIdsByRequestIdIn(List.of(requestId))).thenReturn(List.of(attachmentId));
+        when(requestMapper.toRequestDto(validRow, List.of(5L))).thenReturn(validRequestDto);
 
         // Act
         RequestDto result = requestService.getRequest(requestId);
@@ -203,46 +348,95 @@ class RequestServiceImplTest {
         assertNotNull(result);
         assertEquals(validRequestDto.getId(), result.getId());
         assertEquals(validRequestDto.getRequestName(), result.getRequestName());
-        verify(requestRepository).findById(requestId);
-        verify(requestMapper).mapRequestToRequestDto(validRequest);
+        verify(requestRepository, never()).findById(any());
+        verify(requestMapper).toRequestDto(validRow, List.of(5L));
     }
 
     @Test
     void getRequest_RequestDoesNotExist_ThrowsResourceNotFoundException() {
         // Arrange
         Long requestId = 999L;
-        when(requestRepository.findById(requestId)).thenReturn(Optional.empty());
+        when(requestRepository.findRows(any(), any(), eq(1))).thenReturn(List.of());
 
         // Act & Assert
         assertThrows(ResourceNotFoundException.class, () ->
                 requestService.getRequest(requestId)
         );
 
-        verify(requestRepository).findById(requestId);
-        verify(requestMapper, never()).mapRequestToRequestDto(any());
+        verify(attachmentRepository, never()).findIdsByRequestIdIn(any());
+        verify(requestMapper, never()).toRequestDto(any(), any());
     }
 
     @Test
-    void getRequestsByUser_ValidUserId_ReturnsRequests() {
+    void getRequestsByUser_ValidUserId_ReturnsAllRequests() {
         // Arrange
         Long userId = 1L;
-        List<Request> userRequests = Collections.singletonList(validRequest);
-        List<RequestDto> expectedDtos = Collections.singletonList(validRequestDto);
 
         when(userRepository.existsByIdAndDeletedFalse(userId)).thenReturn(true);
-        when(requestRepository.findByOwnerId(userId)).thenReturn(userRequests);
-        when(requestMapper.mapToRequestDtoList(userRequests)).thenReturn(expectedDtos);
+        when(requestRepository.findRows(any(), any(), eq(Integer.MAX_VALUE))).thenReturn(List.of(validRow));
+        when(requestMapper.toRequestDto(validRow, List.of())).thenReturn(validRequestDto);
 
         // Act
         List<RequestDto> result = requestService.getRequestsByUser(userId);
 
+        // Assert
+        assertEquals(List.of(validRequestDto), result);
+        verify(attachmentRepository).findIdsByRequestIdIn(List.of(validRow.id()));
+    }
+
+    @Test
+    void getRequestPageByUser_ValidUserId_ReturnsPage() {
+        // Arrange
+        Long userId = 1L;
+
+        when(userRepository.existsByIdAndDeletedFalse(userId)).thenReturn(true);
+        when(requestRepository.findRows(any(), any(), eq(21))).thenReturn(List.of(validRow));
+        when(requestMapper.toRequestDto(validRow, List.of())).thenReturn(validRequestDto);
+
+        // Act
+        RequestPageDto result = requestService.getRequestPageByUser(userId, new RequestSearchDto());
+
         // Assert
         assertNotNull(result);
-        assertEquals(1, result.size());
-        assertEquals(validRequestDto.getId(), result.get(0).getId());
+        assertEquals(1, result.getRequests().size());
+        assertEquals(validRequestDto.getId(), result.getRequests().get(0).getId());
+        assertNull(result.getNextCursor());
         verify(userRepository).existsByIdAndDeletedFalse(userId);
-        verify(requestRepository).findByOwnerId(userId);
-        verify(requestMapper).mapToRequestDtoList(userRequests);
+        verify(attachmentRepository).findIdsByRequestIdIn(List.of(validRow.id()));
+    }
+
+    @Test
+    void getRequestPageByUser_MoreThanLimit_ReturnsPageWithCursor() {
+        // Arrange
+        Long userId = 1L;
+        RequestRow newer = new RequestRow(2L, "Newer", 1L, userId, "Owner", "1234567", null, LocalDateTime.of(2024, 5, 2, 10, 0));
+        RequestRow older = new RequestRow(1L, "Older", 1L, userId, "Owner", "1234567", null, LocalDateTime.of(2024, 5, 1, 10, 0));
+
+        when(userRepository.existsByIdAndDeletedFalse(userId)).thenReturn(true);
+        when(requestRepository.findRows(any(), any(), eq(2))).thenReturn(List.of(newer, older));
+
+        // Act
+        RequestPageDto result = requestService.getRequestPageByUser(userId, RequestSearchDto.builder().limit(1).build());
+
+        // Assert
+        assertNotNull(result.getNextCursor());
+        verify(attachmentRepository).findIdsByRequestIdIn(List.of(2L));
+        verify(requestMapper).toRequestDto(newer, List.of());
+        verify(requestMapper, never()).toRequestDto(eq(older), any());
+    }
+
+    @Test
+    void getRequestPageByUser_InvalidCursor_ThrowsBusinessValidationException() {
+        // Arrange
+        Long userId = 1L;
+        when(userRepository.existsByIdAndDeletedFalse(userId)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(BusinessValidationException.class, () ->
+                requestService.getRequestPageByUser(userId, RequestSearchDto.builder().cursor("not-a-cursor").build())
+        );
+
+        verify(requestRepository, never()).findRows(any(), any(), anyInt());
     }
 
     @Test
@@ -257,8 +451,8 @@ class RequestServiceImplTest {
         );
 
         verify(userRepository).existsByIdAndDeletedFalse(userId);
-        verify(requestRepository, never()).findByOwnerId(any());
-        verify(requestMapper, never()).mapToRequestDtoList(any());
+        verify(requestRepository, never()).findRows(any(), any(), anyInt());
+        verify(requestMapper, never()).toRequestDto(any(), any());
     }
 
     @Test
@@ -272,6 +466,7 @@ class RequestServiceImplTest {
 
         // Assert
         verify(requestRepository).findById(requestId);
+        verify(attachmentService).releaseFiles(validAttachments);
         verify(requestRepository).delete(validRequest);
     }
 
@@ -287,6 +482,29 @@ class RequestServiceImplTest {
         );
 
         verify(requestRepository).findById(requestId);
-        verify(requestRepository, never()).delete(any());
+        verify(requestRepository, never()).delete(any(Request.class));
+    }
+
+    private void stubCheck(RequestCreationCheck check) {
+        when(userRepository.checkRequestCreation(validCreateRequestDto.getUserId(), validCreateRequestDto.getAttachmentIds())).thenReturn(Optional.of(check));
+    }
+
+    private static RequestCreationCheck check(LocalDate ownerExpiryDate, long attachmentCount, Long linkedAttachmentId) {
+        return new RequestCreationCheck() {
+            @Override
+            public LocalDate getOwnerExpiryDate() {
+                return ownerExpiryDate;
+            }
+
+            @Override
+            public long getAttachmentCount() {
+                return attachmentCount;
+            }
+
+            @Override
+            public Long getLinkedAttachmentId() {
+                return linkedAttachmentId;
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,207 @@
+package com.warba.assessment;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.warba.assessment.base.ApiResponse;
+import com.warba.assessment.db.ShardRouter;
+import com.warba.assessment.db.ShardRoutingDataSource;
+import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.dto.request.CreateUserDto;
+import com.warba.assessment.dto.request.InitiateUploadDto;
+import com.warba.assessment.dto.response.BatchUserResultDto;
+import com.warba.assessment.dto.response.UserDto;
+import com.warba.assessment.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs with the {@code sharded} profile: three in-memory H2 databases, with each shard's rows
+ * checked directly in its own database.
+ */
+@SpringBootTest(properties = {
+        "DB_NAME=SHARDING",
+        "file.storage.backend=memory",
+        "file.gc.enabled=false"
+})
+@ActiveProfiles("sharded")
+@AutoConfigureMockMvc
+public class ShardingIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private ShardRouter shards;
+
+    @Autowired
+    private ShardRoutingDataSource shardRoutingDataSource;
+
+    private List<Long> userIds;
+
+    @BeforeEach
+    void setUp() {
+        // consecutive civil IDs hash to consecutive values, so a dozen of them reach every shard
+        int firstCivilId = ThreadLocalRandom.current().nextInt(1_000_000, 9_000_000);
+        List<CreateUserDto> users = IntStream.range(0, 12)
+                .mapToObj(i -> createUserDtoBuilder().civilId(String.valueOf(firstCivilId + i)).build())
+                .toList();
+        userIds = userService.createUsers(users).stream().map(BatchUserResultDto::getUserId).toList();
+    }
+
+    @Test
+    void users_AreSpreadOverShardsAndStoredOnlyOnTheirOwn() {
+        assertEquals(3, shards.shardCount());
+        assertEquals(Set.of(0, 1, 2), userIds.stream().map(shards::shardOf).collect(Collectors.toSet()));
+        for (Long userId : userIds) {
+            for (int shard = 0; shard < 3; shard++) {
+                assertEquals(shard == shards.shardOf(userId) ? 1 : 0, shard(shard).queryForObject(
+                        "SELECT COUNT(*) FROM WARBA.USERS WHERE ID = ?", Integer.class, userId));
+            }
+        }
+
+        List<Long> reversed = new ArrayList<>(userIds);
+        Collections.reverse(reversed);
+        assertEquals(reversed, userService.getUsersByIds(reversed).stream().map(UserDto::getId).toList());
+    }
+
+    @Test
+    void requests_AreCreatedAndReadOnTheirOwnersShardOnly() throws Exception {
+        Long userId = userIds.stream().filter(id -> shards.shardOf(id) == 2).findFirst().orElseThrow();
+        List<Long> attachmentIds = List.of(upload(userId), upload(userId));
+        assertEquals(List.of(2, 2), attachmentIds.stream().map(shards::shardOf).toList());
+
+        Long requestId = createRequest(userId, attachmentIds);
+        assertEquals(2, shards.shardOf(requestId));
+        mockMvc.perform(get("/api/requests/" + requestId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.payload.attachmentIds.length()").value(2));
+
+        resetStatementStatistics();
+        mockMvc.perform(get("/api/requests/user/" + userId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.payload[0].id").value(requestId));
+        assertEquals(0, executedStatements(0));
+        assertEquals(0, executedStatements(1));
+        // the owner check, the requests and their attachment ids
+        assertEquals(3, executedStatements(2));
+    }
+
+    @Test
+    void createRequest_WithAttachmentOfAnotherShard_IsRejected() throws Exception {
+        Long userId = userIds.stream().filter(id -> shards.shardOf(id) == 1).findFirst().orElseThrow();
+        Long foreignAttachment = upload(null);
+
+        mockMvc.perform(post("/api/requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createRequestDto(userId, List.of(upload(userId), foreignAttachment)))))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void chunkedUpload_IsStoredOnTheOwnersShard() throws Exception {
+        Long userId = userIds.stream().filter(id -> shards.shardOf(id) == 1).findFirst().orElseThrow();
+        String session = mockMvc.perform(post("/api/attachments/uploads")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(InitiateUploadDto.builder()
+                                .fileName("large.txt").type("PASSPORT").totalSize(4L).userId(userId).build())))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String uploadId = JsonPath.read(session, "$.id");
+        assertEquals(1, shard(1).queryForObject("SELECT COUNT(*) FROM WARBA.UPLOAD_SESSIONS WHERE ID = ?", Integer.class, uploadId));
+
+        mockMvc.perform(get("/api/attachments/uploads/" + uploadId)).andExpect(status().isOk());
+        mockMvc.perform(put("/api/attachments/uploads/" + uploadId).param("offset", "0")
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .content("abcd".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.offset").value(4));
+        Long attachmentId = Long.valueOf(mockMvc.perform(post("/api/attachments/uploads/" + uploadId + "/complete"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+
+        assertEquals(1, shards.shardOf(attachmentId));
+        assertEquals(0, shard(1).queryForObject("SELECT COUNT(*) FROM WARBA.UPLOAD_SESSIONS WHERE ID = ?", Integer.class, uploadId));
+        createRequest(userId, List.of(attachmentId, upload(userId)));
+    }
+
+    private JdbcTemplate shard(int shard) {
+        return new JdbcTemplate(shardRoutingDataSource.getShards().get(shard));
+    }
+
+    private void resetStatementStatistics() {
+        for (int shard = 0; shard < 3; shard++) {
+            shard(shard).execute("SET QUERY_STATISTICS FALSE");
+            shard(shard).execute("SET QUERY_STATISTICS TRUE");
+        }
+    }
+
+    private int executedStatements(int shard) {
+        return shard(shard).queryForObject("SELECT COALESCE(SUM(EXECUTION_COUNT), 0) FROM INFORMATION_SCHEMA.QUERY_STATISTICS"
+                + " WHERE LOWER(SQL_STATEMENT) LIKE '%warba.%'", Integer.class);
+    }
+
+    private Long upload(Long userId) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", "scan.txt", "text/plain", "scan".getBytes(StandardCharsets.UTF_8));
+        var request = multipart("/api/attachments/upload").file(file).param("type", "PASSPORT");
+        if (userId != null) {
+            request.param("userId", userId.toString());
+        }
+        return Long.valueOf(mockMvc.perform(request)
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+    }
+
+    private Long createRequest(Long userId, List<Long> attachmentIds) throws Exception {
+        MvcResult result = mockMvc.perform(post("/api/requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createRequestDto(userId, attachmentIds))))
+                .andExpect(status().isCreated())
+                .andReturn();
+        ApiResponse<Long> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        return response.getPayload();
+    }
+
+    private static CreateRequestDto createRequestDto(Long userId, List<Long> attachmentIds) {
+        return CreateRequestDto.builder()
+                .requestName("Account opening")
+                .statusId(1L)
+                .userId(userId)
+                .attachmentIds(attachmentIds)
+                .build();
+    }
+}
@@ -0,0 +1,275 @@
+package com.warba.assessment;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jayway.jsonpath.JsonPath;
+import com.warba.assessment.base.ApiResponse;
+import com.warba.assessment.dto.request.BatchCreateRequestDto;
+import com.warba.assessment.dto.request.BatchCreateUserDto;
+import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.dto.request.CreateUserDto;
+import com.warba.assessment.dto.request.RequestSearchDto;
+import com.warba.assessment.dto.request.UpdateUserDto;
+import com.warba.assessment.service.RequestService;
+import com.warba.assessment.support.SqlStatementCounter;
+import com.warba.assessment.support.SqlStatementCountingConfiguration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Fails the build when an endpoint starts sending more SQL statements than it needs, e.g. after a
+ * mapping change brings back an N+1. Budgets are the exact current counts, with content-addressed
+ * storage off; lower them when a query is removed, and only raise one together with the change
+ * that needs it. Ids are pooled, so an insert that happens to draw a new pool adds a sequence call;
+ * the order the tests run in is fixed, so that happens at the same place on every run.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:SQL_STATEMENT_BUDGET",
+        "file.storage.backend=memory",
+        "file.upload.staging-location=${java.io.tmpdir}/statement-budget-staging",
+        "file.gc.enabled=false"
+})
+@AutoConfigureMockMvc
+@Import(SqlStatementCountingConfiguration.class)
+public class SqlStatementBudgetIntegrationTest {
+
+    private static final String BOUNDARY = "budget-boundary";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Autowired
+    private RequestService requestService;
+
+    private Long userId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        userId = payload(mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createUserDtoBuilder().build())))
+                .andExpect(status().isCreated())
+                .andReturn());
+    }
+
+    @Test
+    void userEndpoints_StayWithinBudget() throws Exception {
+        Long created = payload(perform(1, post("/api/users")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(createUserDtoBuilder().build())))
+                .andExpect(status().isCreated())
+                .andReturn());
+
+        perform(1, get("/api/users/" + created)).andExpect(status().isOk());
+
+        UpdateUserDto update = new UpdateUserDto();
+        update.setName("Renamed");
+        update.setExpiryDate(LocalDate.now().plusYears(2));
+        perform(2, put("/api/users/" + created)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isOk());
+
+        perform(2, delete("/api/users/" + created)).andExpect(status().isNoContent());
+    }
+
+    @Test
+    void requestEndpoints_StayWithinBudget() throws Exception {
+        Long requestId = createRequest(2);
+
+        perform(2, get("/api/requests/" + requestId)).andExpect(status().isOk());
+        perform(3, get("/api/requests/user/" + userId)).andExpect(status().isOk());
+        perform(3, get("/api/requests/user/" + userId + "/page")).andExpect(status().isOk());
+
+        MvcResult zip = perform(2, get("/api/requests/" + requestId + "/attachments.zip"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(zip)).andExpect(status().isOk());
+
+        // the request, its attachments, then deleting both; see ContentAddressedSqlStatementBudgetIntegrationTest
+        // for the blob releases with content-addressed storage
+        perform(4, delete("/api/requests/" + requestId)).andExpect(status().isNoContent());
+    }
+
+    @Test
+    void createRequest_CostDoesNotGrowWithAttachments() throws Exception {
+        perform(3, post("/api/requests")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestWith(uploadAll(2)))))
+                .andExpect(status().isCreated());
+        perform(3, post("/api/requests")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestWith(uploadAll(10)))))
+                .andExpect(status().isCreated());
+    }
+
+    @Test
+    void createRequests_CostDoesNotGrowWithBatchSize() throws Exception {
+        List<Long> attachmentIds = uploadAll(40);
+        List<CreateRequestDto> requests = new ArrayList<>();
+        for (int i = 0; i < attachmentIds.size(); i += 2) {
+            requests.add(requestWith(attachmentIds.subList(i, i + 2)));
+        }
+
+        // one query each for users and attachments (plus their type), one sequence call, then one
+        // JDBC batch of request inserts and one of attachment updates
+        perform(6, post("/api/requests/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(BatchCreateRequestDto.builder().requests(requests).build())))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.payload[19].requestId").isNumber());
+    }
+
+    @Test
+    void createAndGetUsers_CostDoesNotGrowWithBatchSize() throws Exception {
+        List<CreateUserDto> users = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            users.add(createUserDtoBuilder().build());
+        }
+
+        // one upsert for the whole batch
+        MvcResult created = perform(1, post("/api/users/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(BatchCreateUserDto.builder().users(users).build())))
+                .andExpect(status().isOk())
+                .andReturn();
+        List<Integer> ids = JsonPath.read(created.getResponse().getContentAsString(), "$.payload[*].userId");
+
+        perform(1, get("/api/users").param("ids", ids.stream().map(String::valueOf).toArray(String[]::new)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.payload.length()").value(20));
+    }
+
+    @Test
+    void getRequestPageByUser_CostDoesNotGrowWithPageSize() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            createRequest(2);
+        }
+
+        sqlStatementCounter.assertAtMost(3, () -> requestService.getRequestPageByUser(userId, RequestSearchDto.builder().limit(1).build()));
+        sqlStatementCounter.assertAtMost(3, () -> requestService.getRequestPageByUser(userId, RequestSearchDto.builder().limit(5).build()));
+    }
+
+    @Test
+    void attachmentEndpoints_StayWithinBudget() throws Exception {
+        String id = perform(1, multipart("/api/attachments/upload").file(file("file", "scan.txt")).param("type", "PASSPORT"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        // one JDBC batch of inserts
+        perform(1, multipart("/api/attachments/upload/bulk")
+                .file(file("files", "first.txt")).file(file("files", "second.txt")).file(file("files", "third.txt"))
+                .param("type", "PASSPORT"))
+                .andExpect(status().isCreated());
+
+        perform(1, post("/api/attachments/upload/stream")
+                .contentType("multipart/form-data; boundary=" + BOUNDARY)
+                .content(streamedBody()))
+                .andExpect(status().isCreated());
+
+        String session = perform(2, post("/api/attachments/uploads")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"fileName\":\"large.txt\",\"type\":\"PASSPORT\",\"totalSize\":4}"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String uploadId = JsonPath.read(session, "$.id");
+        perform(1, get("/api/attachments/uploads/" + uploadId)).andExpect(status().isOk());
+        perform(1, put("/api/attachments/uploads/" + uploadId).param("offset", "0")
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .content("abcd".getBytes(StandardCharsets.UTF_8)))
+                .andExpect(status().isOk());
+        perform(3, post("/api/attachments/uploads/" + uploadId + "/complete")).andExpect(status().isCreated());
+
+        perform(1, get("/api/attachments/" + id)).andExpect(status().isOk());
+        // the row, and once the file is cached the row again in case it was deleted meanwhile
+        perform(2, get("/api/attachments/download/" + id)).andExpect(status().isOk());
+        // served from the download cache
+        perform(0, get("/api/attachments/download/" + id)).andExpect(status().isOk());
+    }
+
+    private ResultActions perform(int budget, RequestBuilder request) throws Exception {
+        return sqlStatementCounter.assertAtMost(budget, () -> mockMvc.perform(request));
+    }
+
+    private Long createRequest(int attachments) throws Exception {
+        return payload(mockMvc.perform(post("/api/requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requestWith(uploadAll(attachments)))))
+                .andExpect(status().isCreated())
+                .andReturn());
+    }
+
+    private CreateRequestDto requestWith(List<Long> attachmentIds) {
+        return CreateRequestDto.builder()
+                .requestName("Account opening")
+                .statusId(1L)
+                .userId(userId)
+                .attachmentIds(attachmentIds)
+                .build();
+    }
+
+    private List<Long> uploadAll(int count) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String id = mockMvc.perform(multipart("/api/attachments/upload").file(file("file", "scan-" + i + ".txt")).param("type", "PASSPORT"))
+                    .andExpect(status().isCreated())
+                    .andReturn().getResponse().getContentAsString();
+            ids.add(Long.valueOf(id));
+        }
+        return ids;
+    }
+
+    private static MockMultipartFile file(String name, String fileName) {
+        return new MockMultipartFile(name, fileName, "text/plain", fileName.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] streamedBody() {
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"type\"\r\n\r\n"
+                + "PASSPORT\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"streamed.txt\"\r\n"
+                + "Content-Type: text/plain\r\n\r\n"
+                + "streamed\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+        return body.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Long payload(MvcResult result) throws Exception {
+        ApiResponse<Long> response = objectMapper.readValue(result.getResponse().getContentAsString(), new TypeReference<>() {
+        });
+        return response.getPayload();
+    }
+}
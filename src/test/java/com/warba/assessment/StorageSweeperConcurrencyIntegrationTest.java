@@ -0,0 +1,169 @@
+package com.warba.assessment;
+
+import com.warba.assessment.gc.StorageSweeper;
+import com.warba.assessment.repository.AttachmentBlobRepository;
+import com.warba.assessment.service.AttachmentService;
+import com.warba.assessment.storage.InMemoryStorageBackend;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs an upload of a blob's content while a sweep deletes that blob, holding one of the two
+ * transactions open until the other has reached the blob row, and checks that the upload always
+ * ends up with its file stored.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:STORAGE_SWEEPER_CONCURRENCY",
+        "file.storage.backend=memory",
+        "file.storage.content-addressed=true",
+        "file.gc.enabled=true",
+        "file.gc.interval=PT1H",
+        "file.gc.blob-grace-period=PT0S"
+})
+public class StorageSweeperConcurrencyIntegrationTest {
+
+    /**
+     * How long the second transaction is given to get past the row lock if it were not waiting.
+     */
+    private static final long BLOCKED_MILLIS = 200;
+
+    @Autowired
+    private StorageSweeper storageSweeper;
+
+    @Autowired
+    private AttachmentService attachmentService;
+
+    @Autowired
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Autowired
+    private InMemoryStorageBackend storageBackend;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void uploadWhileSweepDeletesBlob_StoresFileAgain() throws Exception {
+        // Arrange
+        String key = releasedBlob("swept first");
+        CountDownLatch swept = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // Act
+        Future<StorageSweeper.SweepResult> sweep = executor.submit(() -> transactionTemplate.execute(status -> {
+            StorageSweeper.SweepResult result = storageSweeper.sweep();
+            swept.countDown();
+            await(commit);
+            return result;
+        }));
+        assertTrue(swept.await(10, TimeUnit.SECONDS));
+        Future<Long> upload = executor.submit(() -> attachmentService.saveAttachment(file("swept first"), "PASSPORT"));
+        Thread.sleep(BLOCKED_MILLIS);
+        assertFalse(upload.isDone(), "the upload should wait for the sweep's lock on the blob row");
+        commit.countDown();
+
+        // Assert
+        assertEquals(1, sweep.get(10, TimeUnit.SECONDS).blobs());
+        Long attachmentId = upload.get(10, TimeUnit.SECONDS);
+        assertEquals(key, attachmentService.getAttachment(attachmentId).getFileName());
+        assertEquals(Set.of(key), storageBackend.keys());
+        assertEquals(1, attachmentBlobRepository.findById(key).orElseThrow().getRefCount());
+    }
+
+    @Test
+    void sweepWhileUploadReferencesBlob_KeepsBlob() throws Exception {
+        // Arrange
+        String key = releasedBlob("uploaded first");
+        CountDownLatch uploaded = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // Act
+        Future<Long> upload = executor.submit(() -> transactionTemplate.execute(status -> {
+            Long id = attachmentService.saveAttachment(file("uploaded first"), "PASSPORT");
+            uploaded.countDown();
+            await(commit);
+            return id;
+        }));
+        assertTrue(uploaded.await(10, TimeUnit.SECONDS));
+        Future<StorageSweeper.SweepResult> sweep = executor.submit(storageSweeper::sweep);
+        Thread.sleep(BLOCKED_MILLIS);
+        assertFalse(sweep.isDone(), "the sweep should wait for the upload's lock on the blob row");
+        commit.countDown();
+
+        // Assert
+        upload.get(10, TimeUnit.SECONDS);
+        assertEquals(0, sweep.get(10, TimeUnit.SECONDS).blobs());
+        assertEquals(Set.of(key), storageBackend.keys());
+        assertEquals(1, attachmentBlobRepository.findById(key).orElseThrow().getRefCount());
+    }
+
+    @Test
+    void sweepRolledBack_RestoresFile() throws Exception {
+        // Arrange
+        String key = releasedBlob("rolled back");
+
+        // Act
+        transactionTemplate.executeWithoutResult(status -> {
+            assertEquals(1, storageSweeper.sweep().blobs());
+            assertFalse(storageBackend.exists(key));
+            status.setRollbackOnly();
+        });
+
+        // Assert
+        assertEquals(Set.of(key), storageBackend.keys());
+        assertEquals(0, attachmentBlobRepository.findById(key).orElseThrow().getRefCount());
+    }
+
+    /**
+     * Stores the content as a blob nobody references, released just before the sweep looks at it.
+     */
+    private String releasedBlob(String content) throws Exception {
+        storageBackend.keys().forEach(storageBackend::delete);
+        attachmentBlobRepository.deleteAll();
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        String key = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        storageBackend.store(key, new ByteArrayInputStream(bytes));
+        transactionTemplate.executeWithoutResult(status -> attachmentBlobRepository.addReleased(key, bytes.length));
+        Thread.sleep(10);
+        return key;
+    }
+
+    private static MockMultipartFile file(String content) {
+        return new MockMultipartFile("file", "passport.txt", "text/plain", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ex);
+        }
+    }
+}
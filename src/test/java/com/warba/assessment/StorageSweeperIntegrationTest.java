@@ -0,0 +1,145 @@
+package com.warba.assessment;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.warba.assessment.base.ApiResponse;
+import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.entity.AttachmentBlob;
+import com.warba.assessment.gc.StorageSweeper;
+import com.warba.assessment.repository.AttachmentBlobRepository;
+import com.warba.assessment.repository.AttachmentRepository;
+import com.warba.assessment.storage.InMemoryStorageBackend;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:STORAGE_SWEEPER",
+        "file.storage.backend=memory",
+        "file.storage.content-addressed=true",
+        "file.gc.enabled=true",
+        "file.gc.interval=PT1H",
+        "file.gc.batch-size=2",
+        "file.gc.orphan-ttl=PT0S",
+        "file.gc.blob-grace-period=PT0S"
+})
+@AutoConfigureMockMvc
+public class StorageSweeperIntegrationTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private StorageSweeper storageSweeper;
+
+    @Autowired
+    private InMemoryStorageBackend storageBackend;
+
+    @Autowired
+    private AttachmentRepository attachmentRepository;
+
+    @Autowired
+    private AttachmentBlobRepository attachmentBlobRepository;
+
+    @Test
+    void sweep_ReclaimsUnlinkedAttachmentsAndStrayFilesButKeepsLinkedOnes() throws Exception {
+        Long orphanId = upload("orphan.txt", "never linked");
+        Long linkedId = upload("linked.txt", "linked to a request");
+        Long otherLinkedId = upload("passport.txt", "also linked");
+        Long requestId = createRequest(List.of(linkedId, otherLinkedId));
+        storageBackend.store("stray.bin", new ByteArrayInputStream("no row".getBytes(StandardCharsets.UTF_8)));
+
+        sweepSeveralTimes();
+
+        assertFalse(attachmentRepository.existsById(orphanId));
+        Set<String> linkedKeys = Set.of(
+                attachmentRepository.findById(linkedId).orElseThrow().getFileName(),
+                attachmentRepository.findById(otherLinkedId).orElseThrow().getFileName());
+        assertEquals(linkedKeys, storageBackend.keys());
+        assertEquals(linkedKeys, attachmentBlobRepository.findAll().stream().map(AttachmentBlob::getDigest).collect(Collectors.toSet()));
+
+        mockMvc.perform(delete("/api/requests/" + requestId)).andExpect(status().isNoContent());
+    }
+
+    @Test
+    void sweep_AfterRequestIsDeleted_RemovesItsFiles() throws Exception {
+        Long attachmentId = upload("contract.txt", "signed contract");
+        Long requestId = createRequest(List.of(attachmentId, upload("id-card.txt", "civil id card")));
+        String key = attachmentRepository.findById(attachmentId).orElseThrow().getFileName();
+
+        mockMvc.perform(delete("/api/requests/" + requestId)).andExpect(status().isNoContent());
+        assertTrue(storageBackend.exists(key));
+
+        sweepSeveralTimes();
+
+        assertFalse(storageBackend.exists(key));
+        assertFalse(attachmentBlobRepository.existsById(key));
+    }
+
+    /**
+     * Runs enough small batches to get through everything and past the zero TTL.
+     */
+    private void sweepSeveralTimes() throws InterruptedException {
+        Thread.sleep(20);
+        for (int i = 0; i < 5; i++) {
+            storageSweeper.sweep();
+        }
+    }
+
+    private Long upload(String fileName, String content) throws Exception {
+        MockMultipartFile file = new MockMultipartFile("file", fileName, "text/plain", content.getBytes(StandardCharsets.UTF_8));
+        String id = mockMvc.perform(multipart("/api/attachments/upload").file(file).param("type", "PASSPORT"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return Long.valueOf(id);
+    }
+
+    private Long createRequest(List<Long> attachmentIds) throws Exception {
+        Long userId = payload(mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createUserDtoBuilder().build())))
+                .andExpect(status().isCreated())
+                .andReturn());
+        CreateRequestDto createRequest = CreateRequestDto.builder()
+                .requestName("Account opening")
+                .statusId(1L)
+                .userId(userId)
+                .attachmentIds(attachmentIds)
+                .build();
+        return payload(mockMvc.perform(post("/api/requests")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(createRequest)))
+                .andExpect(status().isCreated())
+                .andReturn());
+    }
+
+    private Long payload(MvcResult result) throws Exception {
+        ApiResponse<Long> response = objectMapper.readValue(result.getResponse().getContentAsString(),
+                new TypeReference<>() {
+                });
+        return response.getPayload();
+    }
+}
@@ -0,0 +1,95 @@
+package com.warba.assessment;
+
+import com.warba.assessment.dto.request.CreateUserDto;
+import com.warba.assessment.dto.request.UpdateUserDto;
+import com.warba.assessment.service.UserService;
+import com.warba.assessment.support.SqlStatementCounter;
+import com.warba.assessment.support.SqlStatementCountingConfiguration;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+
+import java.time.LocalDate;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static com.warba.assessment.cache.CacheConfiguration.USERS;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Reads a user through the cache after each kind of change and checks the change is visible.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:USER_CACHE",
+        "file.storage.backend=memory",
+        "file.gc.enabled=false"
+})
+@Import(SqlStatementCountingConfiguration.class)
+public class UserCacheIntegrationTest {
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private SqlStatementCounter sqlStatementCounter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private CreateUserDto createUser;
+    private Long userId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        createUser = createUserDtoBuilder().name("Original").build();
+        userId = userService.createUser(createUser);
+        // warm the cache
+        userService.getUserById(userId);
+    }
+
+    @Test
+    void getUserById_Cached_RunsNoQuery() throws Exception {
+        double hits = hits();
+
+        assertEquals("Original", sqlStatementCounter.assertAtMost(0, () -> userService.getUserById(userId)).getName());
+        assertEquals(hits + 1, hits());
+    }
+
+    @Test
+    void getUserById_AfterUpdate_ReturnsUpdatedUser() {
+        userService.updateUser(userId, new UpdateUserDto("Renamed", LocalDate.now().plusYears(3)));
+
+        assertEquals("Renamed", userService.getUserById(userId).getName());
+        assertEquals(LocalDate.now().plusYears(3), userService.getUserById(userId).getExpiryDate());
+    }
+
+    @Test
+    void getUserById_AfterDeleteAndReactivation_ReturnsReactivatedUser() {
+        userService.deleteUser(userId);
+        assertNull(cacheManager.getCache(USERS).get(userId));
+        userService.getUserById(userId);
+
+        CreateUserDto reactivate = createUserDtoBuilder().civilId(createUser.getCivilId()).name("Returned").build();
+        assertEquals(userId, userService.createUser(reactivate));
+
+        assertEquals("Returned", userService.getUserById(userId).getName());
+    }
+
+    @Test
+    void update_WhenRolledBack_KeepsServingCommittedUser() {
+        assertThrows(RuntimeException.class,
+                () -> userService.updateUser(userId, new UpdateUserDto("x".repeat(500), LocalDate.now().plusYears(3))));
+
+        assertEquals("Original", userService.getUserById(userId).getName());
+    }
+
+    private double hits() {
+        return meterRegistry.get("cache.gets").tag("cache", USERS).tag("result", "hit").functionCounter().count();
+    }
+}
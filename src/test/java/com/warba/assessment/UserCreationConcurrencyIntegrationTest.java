@@ -0,0 +1,130 @@
+package com.warba.assessment;
+
+import com.warba.assessment.dto.request.CreateUserDto;
+import com.warba.assessment.exception.BusinessValidationException;
+import com.warba.assessment.service.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Sends the same civil IDs from several threads at once and checks that each one is created or
+ * brought back exactly once, while every other attempt is turned away as a duplicate.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:USER_CREATION_CONCURRENCY",
+        "file.storage.backend=memory",
+        "file.gc.enabled=false"
+})
+public class UserCreationConcurrencyIntegrationTest {
+
+    private static final int THREADS = 8;
+    private static final int CIVIL_IDS = 100;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void createUser_SameCivilIdsFromManyThreads_CreatesEachOnce() throws Exception {
+        // Arrange
+        List<CreateUserDto> users = IntStream.range(0, CIVIL_IDS)
+                .mapToObj(i -> createUserDtoBuilder().civilId("RACE-" + i).build())
+                .toList();
+
+        // Act
+        Outcome outcome = createConcurrently(users);
+
+        // Assert
+        assertEquals(List.of(), outcome.failures());
+        assertEquals(CIVIL_IDS, outcome.created().size());
+        assertEquals(CIVIL_IDS * (THREADS - 1), outcome.duplicates().get());
+        assertEquals(CIVIL_IDS, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM WARBA.USERS WHERE CIVIL_ID LIKE 'RACE-%'", Integer.class));
+    }
+
+    @Test
+    void createUser_DeletedCivilIdsFromManyThreads_ReactivatesEachOnce() throws Exception {
+        // Arrange
+        List<CreateUserDto> users = IntStream.range(0, CIVIL_IDS)
+                .mapToObj(i -> createUserDtoBuilder().civilId("BACK-" + i).build())
+                .toList();
+        List<Long> ids = users.stream().map(userService::createUser).toList();
+        ids.forEach(userService::deleteUser);
+
+        // Act
+        Outcome outcome = createConcurrently(users);
+
+        // Assert
+        assertEquals(List.of(), outcome.failures());
+        assertEquals(ids.size(), outcome.created().size());
+        assertTrue(outcome.created().values().containsAll(ids));
+        assertEquals(CIVIL_IDS * (THREADS - 1), outcome.duplicates().get());
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM WARBA.USERS WHERE CIVIL_ID LIKE 'BACK-%' AND IS_DELETED", Integer.class));
+    }
+
+    /**
+     * Every thread creates every user, in its own order, starting together.
+     */
+    private Outcome createConcurrently(List<CreateUserDto> users) throws Exception {
+        Outcome outcome = new Outcome(new ConcurrentHashMap<>(), new AtomicInteger(), new CopyOnWriteArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                List<CreateUserDto> order = new ArrayList<>(users);
+                Collections.shuffle(order);
+                workers.add(executor.submit(() -> {
+                    start.await();
+                    order.forEach(user -> create(user, outcome));
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return outcome;
+    }
+
+    private void create(CreateUserDto user, Outcome outcome) {
+        try {
+            Long id = userService.createUser(user);
+            Long previous = outcome.created().putIfAbsent(user.getCivilId(), id);
+            if (previous != null) {
+                outcome.failures().add(user.getCivilId() + " created twice");
+            }
+        } catch (BusinessValidationException ex) {
+            outcome.duplicates().incrementAndGet();
+        } catch (RuntimeException ex) {
+            outcome.failures().add(user.getCivilId() + ": " + ex);
+        }
+    }
+
+    private record Outcome(Map<String, Long> created, AtomicInteger duplicates, List<String> failures) {
+    }
+}
@@ -3,7 +3,9 @@ package com.warba.assessment;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.warba.assessment.base.ApiResponse;
+import com.warba.assessment.dto.request.BatchCreateUserDto;
 import com.warba.assessment.dto.request.CreateUserDto;
+import com.warba.assessment.dto.response.BatchUserResultDto;
 import com.warba.assessment.dto.response.UserDto;
 import com.warba.assessment.repository.UserRepository;
 import org.junit.jupiter.api.Assertions;
@@ -15,9 +17,14 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.util.Arrays;
+import java.util.List;
+
 import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
@@ -74,4 +81,66 @@ public class UserIntegrationTest {
         Assertions.assertEquals(userDTO.getExpiryDate(), user.getExpiryDate());
     }
 
-}
\ No newline at end of file
+    @Test
+    void testBatchCreateAndGetUsers() throws Exception {
+        Long taken = createUser(createUserDtoBuilder().build());
+        CreateUserDto deleted = createUserDtoBuilder().build();
+        Long deletedId = createUser(deleted);
+        mockMvc.perform(delete("/api/users/" + deletedId)).andExpect(status().isNoContent());
+
+        CreateUserDto fresh = createUserDtoBuilder().build();
+        CreateUserDto reactivated = createUserDtoBuilder().civilId(deleted.getCivilId()).name("Returned").build();
+        CreateUserDto takenAgain = createUserDtoBuilder().civilId(userRepository.findById(taken).orElseThrow().getCivilId()).build();
+        CreateUserDto invalid = createUserDtoBuilder().name("").build();
+        BatchCreateUserDto batch = new BatchCreateUserDto(List.of(fresh, reactivated, takenAgain, fresh, invalid));
+
+        String resultsJson = mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<BatchUserResultDto> results = objectMapper.<ApiResponse<List<BatchUserResultDto>>>readValue(resultsJson,
+                new TypeReference<>() {
+                }).getPayload();
+
+        Assertions.assertEquals(5, results.size());
+        Assertions.assertNotNull(results.get(0).getUserId());
+        Assertions.assertEquals(deletedId, results.get(1).getUserId());
+        Assertions.assertEquals("Civil ID already exists", results.get(2).getError());
+        Assertions.assertEquals("Civil ID already exists", results.get(3).getError());
+        Assertions.assertEquals("Name is required", results.get(4).getError());
+
+        String usersJson = mockMvc.perform(get("/api/users")
+                        .param("ids", results.get(1).getUserId() + "," + results.get(0).getUserId() + ",-1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<UserDto> users = objectMapper.<ApiResponse<List<UserDto>>>readValue(usersJson,
+                new TypeReference<>() {
+                }).getPayload();
+
+        Assertions.assertEquals(List.of(deletedId, results.get(0).getUserId()), users.stream().map(UserDto::getId).toList());
+        Assertions.assertEquals("Returned", users.get(0).getName());
+        Assertions.assertEquals(fresh.getCivilId(), users.get(1).getCivilId());
+    }
+
+    @Test
+    void createUsers_WithNullItem_ReturnsBadRequest() throws Exception {
+        BatchCreateUserDto batch = new BatchCreateUserDto(Arrays.asList(createUserDtoBuilder().build(), null));
+
+        mockMvc.perform(post("/api/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.errors['users[1]']").value("Users must not contain null items"));
+    }
+
+    private Long createUser(CreateUserDto dto) throws Exception {
+        String json = mockMvc.perform(post("/api/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(dto)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.<ApiResponse<Long>>readValue(json, new TypeReference<>() {
+        }).getPayload();
+    }
+}
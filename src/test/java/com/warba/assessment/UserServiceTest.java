@@ -2,8 +2,10 @@ package com.warba.assessment;
 
 import com.warba.assessment.builder.UserDtos;
 import com.warba.assessment.builder.Users;
+import com.warba.assessment.db.ShardRouter;
 import com.warba.assessment.dto.request.CreateUserDto;
 import com.warba.assessment.dto.request.UpdateUserDto;
+import com.warba.assessment.dto.response.BatchUserResultDto;
 import com.warba.assessment.dto.response.UserDto;
 import com.warba.assessment.entity.User;
 import com.warba.assessment.exception.BusinessValidationException;
@@ -11,20 +13,31 @@ import com.warba.assessment.exception.ResourceNotFoundException;
 import com.warba.assessment.mapper.UserMapper;
 import com.warba.assessment.repository.UserRepository;
 import com.warba.assessment.service.UserServiceImpl;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 
 import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static com.warba.assessment.builder.CreateUserDtos.createUserDtoBuilder;
 import static com.warba.assessment.builder.Users.userBuilder;
+import static com.warba.assessment.cache.CacheConfiguration.USERS;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -37,6 +50,14 @@ class UserServiceTest {
     private UserServiceImpl userService;
     @Mock
     private UserMapper userMapper;
+    @Spy
+    private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    @Mock
+    private CacheManager cacheManager;
+    @Mock
+    private Cache cache;
+    @Spy
+    private ShardRouter shards = new ShardRouter(false, List.of(), null);
     private User testUser;
     private UserDto testUserDto;
     private CreateUserDto testCreateUserDto;
@@ -77,28 +98,67 @@ class UserServiceTest {
     @Test
     void createUser_WithValidData_ShouldReturnCreatedUser() {
         // Arrange
-        when(userRepository.findByCivilId(anyString())).thenReturn(Optional.empty());
-        when(userMapper.toEntity(any(CreateUserDto.class))).thenReturn(testUser);
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.insertOrReactivate(testCreateUserDto.getCivilId(), testCreateUserDto.getName(),
+                testCreateUserDto.getExpiryDate())).thenReturn(Optional.of(1L));
 
         // Act
         Long id = userService.createUser(testCreateUserDto);
 
         // Assert
-        assertNotNull(id);
-        verify(userRepository).findByCivilId(anyString());
-        verify(userRepository).save(any(User.class));
+        assertEquals(1L, id);
+        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
     void createUser_WithDuplicateCivilId_ShouldThrowException() {
         // Arrange
-        when(userRepository.findByCivilId(anyString())).thenReturn(Optional.of(testUser));
+        when(userRepository.insertOrReactivate(anyString(), anyString(), any(LocalDate.class))).thenReturn(Optional.empty());
 
         // Act & Assert
         assertThrows(BusinessValidationException.class, () -> userService.createUser(testCreateUserDto));
-        verify(userRepository).findByCivilId(anyString());
-        verify(userRepository, never()).save(any(User.class));
+        verify(userRepository).insertOrReactivate(anyString(), anyString(), any(LocalDate.class));
+    }
+
+    @Test
+    void createUsers_MixedItems_CreatesValidOnesAndReportsTheRest() {
+        // Arrange
+        CreateUserDto fresh = createUserDtoBuilder().build();
+        CreateUserDto repeated = createUserDtoBuilder().civilId(fresh.getCivilId()).build();
+        CreateUserDto invalid = createUserDtoBuilder().name(" ").build();
+        CreateUserDto taken = createUserDtoBuilder().build();
+        when(userMapper.toEntity(any(CreateUserDto.class))).thenAnswer(invocation -> {
+            CreateUserDto dto = invocation.getArgument(0);
+            return User.builder().civilId(dto.getCivilId()).name(dto.getName()).expiryDate(dto.getExpiryDate()).build();
+        });
+        when(userRepository.insertOrReactivateAll(anyList())).thenReturn(Map.of(fresh.getCivilId(), 10L));
+        when(cacheManager.getCache(USERS)).thenReturn(cache);
+
+        // Act
+        List<BatchUserResultDto> results = userService.createUsers(List.of(fresh, repeated, invalid, taken));
+
+        // Assert
+        assertEquals(10L, results.get(0).getUserId());
+        assertEquals("Civil ID already exists", results.get(1).getError());
+        assertEquals("Name is required", results.get(2).getError());
+        assertEquals("Civil ID already exists", results.get(3).getError());
+        verify(userRepository).insertOrReactivateAll(argThat(users -> users.size() == 2));
+        verify(cache).evict(10L);
+    }
+
+    @Test
+    void getUsersByIds_WithUnknownAndRepeatedIds_ReturnsKnownUsersInRequestedOrder() {
+        // Arrange
+        User first = userBuilder(1L).build();
+        User second = userBuilder(2L).build();
+        when(userRepository.findAllById(Set.of(1L, 2L, 3L))).thenReturn(List.of(second, first));
+        when(userMapper.convertToDTO(any(User.class)))
+                .thenAnswer(invocation -> UserDtos.userBuilder().id(invocation.<User>getArgument(0).getId()).build());
+
+        // Act
+        List<UserDto> result = userService.getUsersByIds(List.of(2L, 3L, 1L, 2L));
+
+        // Assert
+        assertEquals(List.of(2L, 1L), result.stream().map(UserDto::getId).toList());
     }
 
     @Test
@@ -0,0 +1,113 @@
+package com.warba.assessment.benchmark;
+
+import com.warba.assessment.storage.FileSystemStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the old {@code byte[]} download path with the streamed {@link Resource} path.
+ * Both bodies go through the message converter Spring MVC would pick, into a discarding sink.
+ * Run with {@code ./mvnw test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class AttachmentDownloadBenchmark {
+
+    private static final int FILE_SIZE = 5 * 1024 * 1024;
+    private static final int WARMUP = 20;
+    private static final int ITERATIONS = 100;
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private FileSystemStorageBackend storageBackend;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Path storage = Files.createTempDirectory("bench-uploads");
+        storageBackend = new FileSystemStorageBackend(storage.toString(), 2, 2);
+
+        byte[] content = new byte[FILE_SIZE];
+        ThreadLocalRandom.current().nextBytes(content);
+        storageBackend.store("scan.pdf", new ByteArrayInputStream(content));
+        file = storageBackend.load("scan.pdf").getFile().toPath();
+    }
+
+    @Test
+    void compareByteArrayAndStreamedDownloads() throws IOException {
+        ByteArrayHttpMessageConverter byteArrayConverter = new ByteArrayHttpMessageConverter();
+        ResourceHttpMessageConverter resourceConverter = new ResourceHttpMessageConverter();
+
+        Result byteArray = measure(() -> byteArrayConverter.write(Files.readAllBytes(file), MediaType.APPLICATION_PDF, new DiscardingMessage()));
+        Result streamed = measure(() -> resourceConverter.write(storageBackend.load("scan.pdf"), MediaType.APPLICATION_PDF, new DiscardingMessage()));
+
+        System.out.printf("%-10s %12s %16s%n", "path", "MB/s", "alloc/download");
+        System.out.printf("%-10s %12.1f %14d B%n", "byte[]", byteArray.megabytesPerSecond(), byteArray.bytesPerDownload());
+        System.out.printf("%-10s %12.1f %14d B%n", "resource", streamed.megabytesPerSecond(), streamed.bytesPerDownload());
+
+        assertTrue(byteArray.bytesPerDownload() >= FILE_SIZE);
+        assertTrue(streamed.bytesPerDownload() < FILE_SIZE / 16);
+    }
+
+    private Result measure(Download download) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            download.run();
+        }
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            download.run();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        return new Result(elapsed, allocated);
+    }
+
+    private record Result(long elapsedNanos, long allocatedBytes) {
+
+        double megabytesPerSecond() {
+            return (double) FILE_SIZE * ITERATIONS / (1024 * 1024) / (elapsedNanos / 1e9);
+        }
+
+        long bytesPerDownload() {
+            return allocatedBytes / ITERATIONS;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Download {
+        void run() throws IOException;
+    }
+
+    private static final class DiscardingMessage implements HttpOutputMessage {
+
+        private final HttpHeaders headers = new HttpHeaders();
+
+        @Override
+        public OutputStream getBody() {
+            return OutputStream.nullOutputStream();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+    }
+}
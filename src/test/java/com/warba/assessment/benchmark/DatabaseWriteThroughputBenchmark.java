@@ -0,0 +1,159 @@
+package com.warba.assessment.benchmark;
+
+import com.warba.assessment.RequestManagementSystemApp;
+import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.dto.request.CreateUserDto;
+import com.warba.assessment.service.RequestService;
+import com.warba.assessment.service.UserService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Measures how many users and requests per second the application writes from several threads
+ * with the in-memory database and with the file database of the {@code durable} profile under a
+ * few settings, to size a single node. Each configuration gets a fresh database.
+ * Run with {@code ./mvnw test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class DatabaseWriteThroughputBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int WRITES_PER_THREAD = 500;
+    private static final int ATTACHMENTS_PER_REQUEST = 2;
+
+    private static final List<Configuration> CONFIGURATIONS = List.of(
+            new Configuration("memory", null),
+            new Configuration("file, write-delay 0", "durable", "--h2.write-delay=0"),
+            new Configuration("file, write-delay 500", "durable", "--h2.write-delay=500"),
+            new Configuration("file, 4 MB cache", "durable", "--h2.cache-size=4096"));
+
+    @TempDir
+    Path dataDir;
+
+    @Test
+    void compareConfigurations() throws Exception {
+        // warms up the JIT, so the first configuration is not measured cold
+        measure(CONFIGURATIONS.get(0), "warmup");
+        List<Result> results = new ArrayList<>();
+        for (Configuration configuration : CONFIGURATIONS) {
+            results.add(measure(configuration));
+        }
+
+        System.out.printf("%-24s %12s %12s %12s%n", "configuration", "users/s", "requests/s", "file KB");
+        results.forEach(result -> System.out.printf("%-24s %12.0f %12.0f %12d%n",
+                result.configuration().name(), result.usersPerSecond(), result.requestsPerSecond(), result.fileSize() / 1024));
+
+        Result delayed = results.get(2);
+        Result immediate = results.get(1);
+        assertTrue(delayed.usersPerSecond() > immediate.usersPerSecond());
+    }
+
+    private Result measure(Configuration configuration) throws Exception {
+        return measure(configuration, "run-" + CONFIGURATIONS.indexOf(configuration));
+    }
+
+    private Result measure(Configuration configuration, String run) throws Exception {
+        Path directory = Files.createDirectory(dataDir.resolve(run));
+        try (ConfigurableApplicationContext context = start(configuration, directory)) {
+            UserService userService = context.getBean(UserService.class);
+            RequestService requestService = context.getBean(RequestService.class);
+            JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+            Long ownerId = userService.createUser(user("OWNER"));
+            List<CreateRequestDto> requests = seedRequests(jdbcTemplate, ownerId);
+
+            double usersPerSecond = perSecond(thread -> IntStream.range(0, WRITES_PER_THREAD)
+                    .forEach(i -> userService.createUser(user(thread + "-" + i))));
+            double requestsPerSecond = perSecond(thread -> requests
+                    .subList(thread * WRITES_PER_THREAD, (thread + 1) * WRITES_PER_THREAD)
+                    .forEach(requestService::createRequest));
+            return new Result(configuration, usersPerSecond, requestsPerSecond, fileSize(directory));
+        }
+    }
+
+    private ConfigurableApplicationContext start(Configuration configuration, Path directory) {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(RequestManagementSystemApp.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "DATA_DIR=" + directory,
+                        "file.storage.backend=memory",
+                        "file.gc.enabled=false",
+                        "h2.compaction.enabled=false");
+        if (configuration.profile() != null) {
+            builder.profiles(configuration.profile());
+        }
+        return builder.run(configuration.arguments());
+    }
+
+    private static double perSecond(Consumer<Integer> writes) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                workers.add(executor.submit(() -> writes.accept(thread)));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return THREADS * WRITES_PER_THREAD / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static CreateUserDto user(String civilId) {
+        return CreateUserDto.builder().name("Benchmark").civilId(civilId).expiryDate(LocalDate.now().plusYears(1)).build();
+    }
+
+    /**
+     * Inserts unlinked attachments directly, so the measured loop only creates requests.
+     */
+    private static List<CreateRequestDto> seedRequests(JdbcTemplate jdbcTemplate, Long ownerId) {
+        int count = THREADS * WRITES_PER_THREAD;
+        jdbcTemplate.update("""
+                INSERT INTO WARBA.ATTACHMENTS (ID, FILE_NAME, ORIGINAL_FILE_NAME, FILE_TYPE, ATTACHMENT_TYPE)
+                SELECT X, 'bench-' || X, 'bench.txt', 'text/plain', 1 FROM SYSTEM_RANGE(1, ?)
+                """, (long) count * ATTACHMENTS_PER_REQUEST);
+        return LongStream.range(0, count)
+                .mapToObj(i -> CreateRequestDto.builder()
+                        .requestName("Benchmark " + i)
+                        .statusId(1L)
+                        .userId(ownerId)
+                        .attachmentIds(LongStream.rangeClosed(1, ATTACHMENTS_PER_REQUEST)
+                                .mapToObj(j -> i * ATTACHMENTS_PER_REQUEST + j).toList())
+                        .build())
+                .toList();
+    }
+
+    private static long fileSize(Path directory) throws Exception {
+        Path file = directory.resolve("db").resolve("CORPORATE_REQUESTS.mv.db");
+        return Files.exists(file) ? Files.size(file) : 0;
+    }
+
+    private record Configuration(String name, String profile, String... arguments) {
+    }
+
+    private record Result(Configuration configuration, double usersPerSecond, double requestsPerSecond, long fileSize) {
+    }
+}
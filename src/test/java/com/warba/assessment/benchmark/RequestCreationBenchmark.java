@@ -0,0 +1,143 @@
+package com.warba.assessment.benchmark;
+
+import com.warba.assessment.dto.request.CreateRequestDto;
+import com.warba.assessment.entity.Attachment;
+import com.warba.assessment.entity.Request;
+import com.warba.assessment.entity.Status;
+import com.warba.assessment.entity.User;
+import com.warba.assessment.repository.AttachmentRepository;
+import com.warba.assessment.repository.RequestRepository;
+import com.warba.assessment.repository.StatusRepository;
+import com.warba.assessment.repository.UserRepository;
+import com.warba.assessment.service.RequestService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Compares the old {@code createRequest} (user, status and attachments read one after another,
+ * attachments linked by dirty checking) with the single validation query and set-based link.
+ * Every statement is delayed by {@link RoundTripLatencyConfiguration#ROUND_TRIP}.
+ * Run with {@code ./mvnw test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:REQUEST_CREATION_BENCHMARK",
+        "file.storage.backend=memory",
+        "file.gc.enabled=false"
+})
+@Import(RoundTripLatencyConfiguration.class)
+class RequestCreationBenchmark {
+
+    private static final int WARMUP = 200;
+    private static final int ITERATIONS = 1_000;
+    private static final int ATTACHMENTS_PER_REQUEST = 4;
+
+    @Autowired
+    private RequestService requestService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StatusRepository statusRepository;
+
+    @Autowired
+    private AttachmentRepository attachmentRepository;
+
+    @Autowired
+    private RequestRepository requestRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void compareSequentialAndSingleQueryValidation() {
+        Long userId = userRepository.save(User.builder()
+                .name("Benchmark").civilId("BENCH-1").expiryDate(LocalDate.now().plusYears(1)).build()).getId();
+
+        Result sequential = measure(userId, this::createSequentially);
+        Result combined = measure(userId, requestService::createRequest);
+
+        System.out.printf("%-12s %10s %10s%n", "path", "mean ms", "p99 ms");
+        System.out.printf("%-12s %10.2f %10.2f%n", "sequential", sequential.meanMillis(), sequential.p99Millis());
+        System.out.printf("%-12s %10.2f %10.2f%n", "combined", combined.meanMillis(), combined.p99Millis());
+
+        assertTrue(combined.meanMillis() < sequential.meanMillis());
+    }
+
+    /**
+     * {@code createRequest} as it was before the combined check.
+     */
+    private Long createSequentially(CreateRequestDto dto) {
+        return transactionTemplate.execute(tx -> {
+            User user = userRepository.findById(dto.getUserId()).orElseThrow();
+            Status status = statusRepository.findById(dto.getStatusId()).orElseThrow();
+            List<Attachment> attachments = attachmentRepository.findAllById(dto.getAttachmentIds());
+            Request request = Request.builder()
+                    .requestName(dto.getRequestName()).owner(user).status(status).attachments(attachments).build();
+            attachments.forEach(attachment -> attachment.setRequest(request));
+            return requestRepository.save(request).getId();
+        });
+    }
+
+    private Result measure(Long userId, Function<CreateRequestDto, Long> create) {
+        List<CreateRequestDto> requests = seedRequests(userId, WARMUP + ITERATIONS);
+        requests.subList(0, WARMUP).forEach(create::apply);
+
+        long[] latencies = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long start = System.nanoTime();
+            create.apply(requests.get(WARMUP + i));
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        return new Result(Arrays.stream(latencies).average().orElseThrow(), latencies[ITERATIONS * 99 / 100]);
+    }
+
+    /**
+     * Inserts unlinked attachments directly, so the measured loop only creates requests.
+     */
+    private List<CreateRequestDto> seedRequests(Long userId, int count) {
+        Long first = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(ID), 0) + 1 FROM WARBA.ATTACHMENTS", Long.class);
+        jdbcTemplate.update("""
+                INSERT INTO WARBA.ATTACHMENTS (ID, FILE_NAME, ORIGINAL_FILE_NAME, FILE_TYPE, ATTACHMENT_TYPE)
+                SELECT X, 'bench-' || X, 'bench.txt', 'text/plain', 1 FROM SYSTEM_RANGE(?, ?)
+                """, first, first + (long) count * ATTACHMENTS_PER_REQUEST - 1);
+        return LongStream.range(0, count)
+                .mapToObj(i -> CreateRequestDto.builder()
+                        .requestName("Benchmark " + i)
+                        .statusId(1L)
+                        .userId(userId)
+                        .attachmentIds(LongStream.range(0, ATTACHMENTS_PER_REQUEST)
+                                .mapToObj(j -> first + i * ATTACHMENTS_PER_REQUEST + j).toList())
+                        .build())
+                .toList();
+    }
+
+    private record Result(double meanNanos, long p99Nanos) {
+
+        double meanMillis() {
+            return meanNanos / 1e6;
+        }
+
+        double p99Millis() {
+            return p99Nanos / 1e6;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.warba.assessment.benchmark;
+
+import com.warba.assessment.RequestManagementSystemApp;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Measures the time from launching the JVM to the first answered request, the readiness probe's
+ * {@code GET /actuator/health}, for the {@code durable} setup the image used to start with and for
+ * each piece of the {@code fast-start} setup the {@code Dockerfile} now builds. Every start is a
+ * process of its own on the packaged jar, unpacked the way the image does, against a database an
+ * earlier start already migrated and validated. Package the jar first; the AOT configurations need
+ * it built with {@code -Paot}:
+ * {@code ./mvnw package -Paot -DskipTests && ./mvnw test -Pbenchmark -Dtest=StartupTimeBenchmark}.
+ */
+@Tag("benchmark")
+class StartupTimeBenchmark {
+
+    private static final int RUNS = 3;
+    private static final Duration START_TIMEOUT = Duration.ofMinutes(3);
+    private static final Path LOG = Path.of("target", "startup-benchmark.log").toAbsolutePath();
+    private static final String AOT_INITIALIZER =
+            RequestManagementSystemApp.class.getName().replace('.', '/') + "__ApplicationContextInitializer.class";
+
+    private static final List<Configuration> CONFIGURATIONS = List.of(
+            new Configuration("durable", false, false, "durable"),
+            new Configuration("fast-start", false, false, "durable", "fast-start"),
+            new Configuration("fast-start, AOT", true, false, "durable", "fast-start"),
+            new Configuration("fast-start, AOT, CDS", true, true, "durable", "fast-start"));
+
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    @TempDir
+    Path workDir;
+
+    private Path application;
+    private Path applicationJar;
+    private Path dataDir;
+    private Path archive;
+
+    @Test
+    void compareConfigurations() throws Exception {
+        Path jar = packagedJar();
+        assumeTrue(jar != null, "Package the application first: ./mvnw package -Paot -DskipTests");
+        application = workDir.resolve("application");
+        // the extracted jar keeps the packaged jar's name
+        applicationJar = application.resolve(jar.getFileName());
+        dataDir = workDir.resolve("data");
+        archive = application.resolve("app.jsa");
+        run(java("-Djarmode=tools", "-jar", jar.toString(), "extract", "--destination", application.toString()));
+        boolean aotProcessed = aotProcessed();
+
+        List<Configuration> configurations = CONFIGURATIONS.stream()
+                .filter(configuration -> aotProcessed || !configuration.aot())
+                .toList();
+        // migrates the database and records its validation, so the measured starts find both done
+        timeToFirstRequest(CONFIGURATIONS.get(1));
+        if (aotProcessed) {
+            // the training run: starts the context once and archives every class it loaded
+            run(command(CONFIGURATIONS.get(2), List.of("-XX:ArchiveClassesAtExit=" + archive, "-Dspring.context.exit=onRefresh")));
+        }
+
+        List<Result> results = new ArrayList<>();
+        for (Configuration configuration : configurations) {
+            long[] millis = new long[RUNS];
+            for (int run = 0; run < RUNS; run++) {
+                millis[run] = timeToFirstRequest(configuration).toMillis();
+            }
+            Arrays.sort(millis);
+            results.add(new Result(configuration, millis[RUNS / 2], millis[0]));
+        }
+
+        System.out.printf("%-24s %12s %12s%n", "configuration", "median ms", "best ms");
+        results.forEach(result -> System.out.printf("%-24s %12d %12d%n",
+                result.configuration().name(), result.medianMillis(), result.bestMillis()));
+        if (!aotProcessed) {
+            System.out.println("AOT and CDS skipped: the jar was not built with -Paot");
+        }
+
+        assertTrue(results.get(results.size() - 1).medianMillis() < results.get(0).medianMillis());
+    }
+
+    private Duration timeToFirstRequest(Configuration configuration) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        HttpRequest probe = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/actuator/health")).build();
+        long start = System.nanoTime();
+        Process process = start(command(configuration, List.of(), "--server.port=" + port));
+        try {
+            while (System.nanoTime() - start < START_TIMEOUT.toNanos()) {
+                assertTrue(process.isAlive(), () -> configuration.name() + " exited, see " + LOG);
+                try {
+                    if (client.send(probe, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return Duration.ofNanos(System.nanoTime() - start);
+                    }
+                } catch (IOException ex) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            return fail(configuration.name() + " did not answer within " + START_TIMEOUT + ", see " + LOG);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(1, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private List<String> command(Configuration configuration, List<String> jvmOptions, String... arguments) {
+        List<String> command = new ArrayList<>();
+        if (configuration.cds()) {
+            command.add("-XX:SharedArchiveFile=" + archive);
+        }
+        if (configuration.aot()) {
+            command.add("-Dspring.aot.enabled=true");
+        }
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", applicationJar.toString(),
+                "--spring.profiles.active=" + String.join(",", configuration.profiles()),
+                "--DATA_DIR=" + dataDir,
+                "--file.gc.enabled=false",
+                "--h2.compaction.enabled=false"));
+        command.addAll(List.of(arguments));
+        return java(command.toArray(String[]::new));
+    }
+
+    private Process start(List<String> command) throws IOException {
+        return new ProcessBuilder(command)
+                .directory(workDir.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(LOG.toFile())
+                .start();
+    }
+
+    private void run(List<String> command) throws Exception {
+        Process process = start(command);
+        assertTrue(process.waitFor(START_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS), () -> "Timed out, see " + LOG);
+        assertEquals(0, process.exitValue(), () -> "Failed, see " + LOG);
+    }
+
+    private boolean aotProcessed() throws IOException {
+        try (JarFile jar = new JarFile(applicationJar.toFile())) {
+            return jar.getEntry(AOT_INITIALIZER) != null;
+        }
+    }
+
+    private static List<String> java(String... arguments) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(List.of(arguments));
+        return command;
+    }
+
+    private static Path packagedJar() throws IOException {
+        try (Stream<Path> files = Files.list(Path.of("target").toAbsolutePath())) {
+            return files.filter(file -> file.getFileName().toString().matches("request-management-system-.*\\.jar"))
+                    .findFirst()
+                    .orElse(null);
+        }
+    }
+
+    private record Configuration(String name, boolean aot, boolean cds, String... profiles) {
+    }
+
+    private record Result(Configuration configuration, long medianMillis, long bestMillis) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.warba.assessment.benchmark;
+
+import com.warba.assessment.dto.request.CreateUserDto;
+import com.warba.assessment.entity.User;
+import com.warba.assessment.exception.BusinessValidationException;
+import com.warba.assessment.repository.UserRepository;
+import com.warba.assessment.service.UserService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Imports users from several threads, comparing the old {@code createUser} (look the civil ID up,
+ * then insert or reactivate) with the single upsert. A tenth of the civil IDs are sent by two
+ * threads at once, as a retried import would. Every statement is delayed by
+ * {@link RoundTripLatencyConfiguration#ROUND_TRIP}. Run with {@code ./mvnw test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:USER_CREATION_BENCHMARK",
+        "file.storage.backend=memory",
+        "file.gc.enabled=false"
+})
+@Import(RoundTripLatencyConfiguration.class)
+class UserCreationBenchmark {
+
+    private static final int THREADS = 8;
+    private static final int USERS_PER_THREAD = 500;
+    private static final int SHARED_EVERY = 10;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void compareCheckThenInsertAndUpsert() throws Exception {
+        measure("WARMUP-", userService::createUser);
+        Result checkThenInsert = measure("CHECK-", this::createWithCheck);
+        Result upsert = measure("UPSERT-", userService::createUser);
+
+        System.out.printf("%-18s %12s %10s %10s%n", "path", "users/s", "conflicts", "errors");
+        System.out.printf("%-18s %12.0f %10d %10d%n", "check-then-insert",
+                checkThenInsert.usersPerSecond(), checkThenInsert.conflicts(), checkThenInsert.errors());
+        System.out.printf("%-18s %12.0f %10d %10d%n", "upsert",
+                upsert.usersPerSecond(), upsert.conflicts(), upsert.errors());
+
+        assertEquals(0, upsert.errors());
+        assertTrue(upsert.usersPerSecond() > checkThenInsert.usersPerSecond());
+    }
+
+    /**
+     * {@code createUser} as it was before the upsert.
+     */
+    private Long createWithCheck(CreateUserDto dto) {
+        return transactionTemplate.execute(tx -> {
+            User user = userRepository.findByCivilId(dto.getCivilId()).orElse(null);
+            if (user == null) {
+                user = User.builder().name(dto.getName()).civilId(dto.getCivilId()).expiryDate(dto.getExpiryDate()).build();
+            } else if (Boolean.TRUE.equals(user.getDeleted())) {
+                user.setDeleted(false);
+                user.setName(dto.getName());
+                user.setExpiryDate(dto.getExpiryDate());
+            } else {
+                throw new BusinessValidationException("Civil ID already exists");
+            }
+            return userRepository.save(user).getId();
+        });
+    }
+
+    private Result measure(String prefix, Function<CreateUserDto, Long> create) throws Exception {
+        AtomicInteger conflicts = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                List<CreateUserDto> users = users(prefix, t);
+                workers.add(executor.submit(() -> users.forEach(user -> {
+                    try {
+                        create.apply(user);
+                    } catch (BusinessValidationException ex) {
+                        conflicts.incrementAndGet();
+                    } catch (RuntimeException ex) {
+                        errors.incrementAndGet();
+                    }
+                })));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new Result(System.nanoTime() - start, conflicts.get(), errors.get());
+    }
+
+    /**
+     * Every {@link #SHARED_EVERY}th user of a thread is also sent by the thread next to it.
+     */
+    private static List<CreateUserDto> users(String prefix, int thread) {
+        return IntStream.range(0, USERS_PER_THREAD)
+                .mapToObj(i -> CreateUserDto.builder()
+                        .name("Benchmark " + i)
+                        .civilId(i % SHARED_EVERY == 0 ? prefix + "S-" + thread / 2 + "-" + i : prefix + thread + "-" + i)
+                        .expiryDate(LocalDate.now().plusYears(1))
+                        .build())
+                .toList();
+    }
+
+    private record Result(long elapsedNanos, int conflicts, int errors) {
+
+        double usersPerSecond() {
+            return THREADS * USERS_PER_THREAD / (elapsedNanos / 1e9);
+        }
+    }
+}
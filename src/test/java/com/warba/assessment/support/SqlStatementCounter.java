@@ -0,0 +1,66 @@
+package com.warba.assessment.support;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Records every statement sent through the proxied data source. A JDBC batch counts as one
+ * statement, since it is one round trip.
+ */
+public class SqlStatementCounter implements QueryExecutionListener {
+
+    private final List<RecordedStatement> statements = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        // counted once it has run
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        QueryInfo first = queryInfoList.get(0);
+        List<ParameterSetOperation> parameters = first.getParametersList().isEmpty()
+                ? List.of() : List.copyOf(first.getParametersList().get(0));
+        statements.add(new RecordedStatement(first.getQuery(), parameters));
+    }
+
+    public void reset() {
+        statements.clear();
+    }
+
+    public List<String> statements() {
+        return statements.stream().map(RecordedStatement::sql).toList();
+    }
+
+    /**
+     * The statements run since the last reset, with the parameters of their first execution.
+     */
+    public List<RecordedStatement> recordedStatements() {
+        return List.copyOf(statements);
+    }
+
+    /**
+     * Runs {@code action} and fails if it sent more than {@code budget} statements, listing them.
+     */
+    public <T> T assertAtMost(int budget, Callable<T> action) throws Exception {
+        reset();
+        T result = action.call();
+        List<String> executed = statements();
+        if (executed.size() > budget) {
+            fail("Expected at most " + budget + " SQL statements but " + executed.size() + " ran:\n  "
+                    + String.join("\n  ", executed));
+        }
+        return result;
+    }
+
+    public record RecordedStatement(String sql, List<ParameterSetOperation> parameters) {
+    }
+}